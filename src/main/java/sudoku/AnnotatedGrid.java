@@ -8,12 +8,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
 import lombok.EqualsAndHashCode;
 import sudoku.GridElements.Cell;
 import sudoku.GridElements.Row;
 import sudoku.GridElements.Column;
 import sudoku.GridElements.Box;
+import sudoku.exceptions.GridParserException;
 
 /**
  * A grid with a set of digits associated to each of its empty cells. The set
@@ -53,6 +55,15 @@ public final class AnnotatedGrid extends Grid {
         candidates = Util.copy(grid.candidates);
     }
 
+    /**
+     * Creates an annotated grid with the digits of the specified grid and the
+     * specified candidate sets, which are used as they are.
+     */
+    private AnnotatedGrid(Grid grid, Map<Cell, Set<Digit>> candidates) {
+        super(grid);
+        this.candidates = candidates;
+    }
+
     /**
      * Removes the specified digit from the set of candidates for the specified
      * cell.
@@ -60,11 +71,11 @@ public final class AnnotatedGrid extends Grid {
      * @throws NoSuchElementException if the specified cell is not blank.
      */
     public void ruleOut(Digit d, Cell cell) {
-        try {
-            candidates.get(cell).remove(d);
-        } catch (NullPointerException npe) {
+        Set<Digit> cellCandidates = candidates.get(cell);
+        if (cellCandidates == null) {
             throw new NoSuchElementException("The given cell is not empty");
         }
+        cellCandidates.remove(d);
     }
 
     /**
@@ -100,11 +111,150 @@ public final class AnnotatedGrid extends Grid {
      * box.
      */
     public static AnnotatedGrid fromOrdinaryGrid(Grid grid) {
+        Events.Annotate event =
+                Events.recorderInitialized() ? Events.begin(new Events.Annotate()) : null;
         AnnotatedGrid annotatedGrid = new AnnotatedGrid();
         Grid.copy(grid, annotatedGrid); // Calls the overriden method setDigit(Cell, Digit)
+        if (event != null && event.shouldCommit()) {
+            event.clues = Events.clues(grid);
+            event.commit();
+        }
         return annotatedGrid;
     }
 
+    /**
+     * Creates an annotated grid from a string of pencil marks, as returned by
+     * {@link #toPencilMarks()}, without replaying the clues as
+     * {@link #fromOrdinaryGrid(Grid)} does. The string has 324 characters: the
+     * 81 digits of the grid, as returned by {@link Grid#toString()}, followed by
+     * three octal digits for each cell in row-major order. These make up a
+     * nine-bit mask of the candidates for the cell, in which the bit of value
+     * 2^(d - 1) is set if d is a candidate. The mask of a nonempty cell must be
+     * zero.
+     * 
+     * The marks may leave out candidates, which is how eliminations made by hand
+     * are kept. Candidates ruled out by the digits in a cell's row, column or box
+     * are removed, so the marks need not be up to date with the digits.
+     * 
+     * @throws GridParserException if the string has the wrong length or a bad
+     *                             character, a nonempty cell has candidates, or
+     *                             a digit appears twice in a row, column or box
+     */
+    public static AnnotatedGrid fromPencilMarks(CharSequence marks) throws GridParserException {
+        if (marks.length() != 81 + 3 * 81) {
+            throw new GridParserException("Pencil marks of incorrect size: " + marks.length());
+        }
+        // The digits placed in each row, column and box, as bit masks
+        int[] used = new int[27];
+        Grid grid = new Grid();
+        Digit[] digits = Digit.values();
+        for (Cell cell : GridElements.cells()) {
+            int index = 9 * cell.getRow() + cell.getColumn();
+            char c = marks.charAt(index);
+            if (c < '0' || c > '9') {
+                throw new GridParserException("Bad character at " + index + ": " + c);
+            }
+            if (c != '0') {
+                int bit = 1 << (c - '1');
+                int box = 18 + 3 * (cell.getRow() / 3) + cell.getColumn() / 3;
+                if (((used[cell.getRow()] | used[9 + cell.getColumn()] | used[box]) & bit) != 0) {
+                    throw new GridParserException("Duplicate clue at " + index);
+                }
+                used[cell.getRow()] |= bit;
+                used[9 + cell.getColumn()] |= bit;
+                used[box] |= bit;
+                grid.setDigit(cell, digits[c - '1']);
+            }
+        }
+        Map<Cell, Set<Digit>> candidates = new HashMap<>();
+        for (Cell cell : GridElements.cells()) {
+            int index = 9 * cell.getRow() + cell.getColumn();
+            int mask = 0;
+            for (int i = 81 + 3 * index; i < 81 + 3 * index + 3; i++) {
+                char c = marks.charAt(i);
+                if (c < '0' || c > '7') {
+                    throw new GridParserException("Bad character at " + i + ": " + c);
+                }
+                mask = 8 * mask + (c - '0');
+            }
+            if (grid.digitAt(cell).isPresent()) {
+                if (mask != 0) {
+                    throw new GridParserException("Candidates for nonempty cell at " + index);
+                }
+                continue;
+            }
+            int box = 18 + 3 * (cell.getRow() / 3) + cell.getColumn() / 3;
+            mask &= ~(used[cell.getRow()] | used[9 + cell.getColumn()] | used[box]);
+            Set<Digit> cellCandidates = EnumSet.noneOf(Digit.class);
+            for (Digit d : digits) {
+                if ((mask & (1 << d.ordinal())) != 0) {
+                    cellCandidates.add(d);
+                }
+            }
+            candidates.put(cell, cellCandidates);
+        }
+        return new AnnotatedGrid(grid, candidates);
+    }
+
+    /**
+     * Returns a copy of this grid in which the specified nonempty cell is blank.
+     * If the candidates of this grid are those built by
+     * {@link #fromOrdinaryGrid(Grid)}, so are those of the copy: the blank cell
+     * gets the digits that none of its peers hold, and each empty peer gets
+     * back the removed digit unless another of its peers holds it. This costs
+     * a pass over the peers of the peers of the cell, instead of replaying
+     * every digit of the grid.
+     * 
+     * @throws NoSuchElementException if the specified cell is blank
+     */
+    AnnotatedGrid withBlank(Cell blank) {
+        Digit removed = digitAt(blank).get();
+        Grid grid = new Grid();
+        for (Cell cell : nonEmptyCells()) {
+            if (cell != blank) {
+                grid.setDigit(cell, digitAt(cell).get());
+            }
+        }
+        Map<Cell, Set<Digit>> copy = Util.copy(candidates);
+        Set<Digit> blankCandidates = EnumSet.allOf(Digit.class);
+        for (Cell peer : GridElements.peers(blank)) {
+            if (grid.digitAt(peer).isPresent()) {
+                blankCandidates.remove(grid.digitAt(peer).get());
+            } else if (!anyPeerHolds(grid, peer, removed)) {
+                copy.get(peer).add(removed);
+            }
+        }
+        copy.put(blank, blankCandidates);
+        return new AnnotatedGrid(grid, copy);
+    }
+
+    private static boolean anyPeerHolds(Grid grid, Cell cell, Digit digit) {
+        for (Cell peer : GridElements.peers(cell)) {
+            if (grid.digitAt(peer).equals(Optional.of(digit))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the pencil marks of this grid, in the format accepted by
+     * {@link #fromPencilMarks(CharSequence)}.
+     */
+    public final String toPencilMarks() {
+        StringBuilder sb = new StringBuilder(toString());
+        for (Cell cell : GridElements.cells()) {
+            int mask = 0;
+            if (!digitAt(cell).isPresent()) {
+                for (Digit d : candidates.get(cell)) {
+                    mask |= 1 << d.ordinal();
+                }
+            }
+            sb.append(mask >> 6).append((mask >> 3) & 7).append(mask & 7);
+        }
+        return sb.toString();
+    }
+
     @Override
     public Set<Cell> emptyCells() {
         return Collections.unmodifiableSet(candidates.keySet());
@@ -2,49 +2,549 @@ package sudoku;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import sudoku.GridElements.Cell;
 import sudoku.exceptions.GridParserException;
 
 public class App {
 
+    private static final int TRACE_CAPACITY = 1 << 16;
+
+    private static final int LEARNING_RUNS = 3;
+
+    /**
+     * Solves the grids read from the standard input and writes their solutions to the standard
+     * output. The first argument, if any, selects a different mode: "verify" checks claimed
+     * solutions, "merge" combines the partial results of sharded runs, read from the files named
+     * by the remaining arguments, "compare" solves the grids with every engine and compares the
+     * results, "validate" checks puzzles given one per line, "trace" writes the steps taken by
+     * the search on each grid, "marks" solves grids given with their pencil marks, one per
+     * line, and "learn" times every engine and heuristic on the grids to learn a routing table.
+     * See {@link Options} for the accepted options.
+     */
     public static void main(String[] args) throws IOException {
         try (BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
                 BufferedWriter output = new BufferedWriter(new OutputStreamWriter(System.out))) {
-            readGridsAndWriteSolutions(input, output);
+            run(Options.parse(args), input, output);
         }
     }
 
-    private static void readGridsAndWriteSolutions(BufferedReader input, Writer output)
-            throws IOException {
+    static void run(Options options, BufferedReader input, Writer output) throws IOException {
+        switch (options.mode) {
+            case "solve":
+                readGridsAndWriteSolutions(input, output, options);
+                break;
+            case "verify":
+                readPairsAndWriteVerdicts(input, output);
+                break;
+            case "merge":
+                mergePartialResults(options.files, output);
+                break;
+            case "validate":
+                readLinesAndWriteErrorReport(input, output);
+                break;
+            case "compare":
+                Comparison.run(input, output, options.heuristic,
+                        Optional.ofNullable(options.report));
+                break;
+            case "trace":
+                readGridsAndWriteTraces(input, output, options.heuristic);
+                break;
+            case "marks":
+                readPencilMarksAndWriteSolutions(input, output, options.heuristic);
+                break;
+            case "learn":
+                readGridsAndLearnRoutes(input, output, options.routing);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + options.mode);
+        }
+    }
+
+    /**
+     * Command-line options.
+     * 
+     * {@code --heuristic=NAME} selects the branching heuristic, by the names accepted by
+     * {@link Heuristic#fromString(String)}.
+     * 
+     * {@code --shard=INDEX/COUNT} splits the inputs into {@code COUNT} shards, and solves only
+     * those in the shard with the given zero-based index. Input {@code k} belongs to shard
+     * {@code (k - 1) % COUNT}. The output is then a partial result, which can be combined with
+     * the partial results of the other shards in merge mode.
+     * 
+     * {@code --journal=PATH} records the output for each completed input in a journal at the
+     * given path, which is synced to disk every {@code N} inputs as set by
+     * {@code --journal-flush=N}. With {@code --resume}, the inputs already in the journal are not
+     * solved again; their recorded outputs are replayed instead.
+     * 
+     * {@code --progress=SECONDS} reports the throughput to the standard error stream at the given
+     * interval. Either way, the throughput and latency percentiles of the whole run are reported
+     * there at its end.
+     * 
+     * {@code --cache=PATH} looks up each grid in the persistent solution cache at the given path
+     * before solving it, and adds the solutions it finds to the cache. A new cache has room for
+     * the number of entries set by {@code --cache-size=N}.
+     * 
+     * {@code --report=PATH} writes the comparison of the engines in compare mode to the given
+     * path, as comma-separated values.
+     * 
+     * {@code --routing=PATH} solves each grid with the engine and heuristic chosen for it by the
+     * routing table at the given path, as {@link Router} does, instead of the heuristic set by
+     * {@code --heuristic}. In learn mode, the learned table is written to that path.
+     */
+    static final class Options {
+
+        String mode = "solve";
+        List<String> files = new ArrayList<>();
+        Heuristic heuristic = Heuristic.fewestCandidates();
+        int shardIndex = 0;
+        int shardCount = 1;
+        String journal = null;
+        int journalFlushInterval = 100;
+        boolean resume = false;
+        int progressInterval = 0;
+        String report = null;
+        String cache = null;
+        int cacheSize = 1 << 16;
+        String routing = null;
+
+        /**
+         * @throws IllegalArgumentException if an option is malformed
+         */
+        static Options parse(String... args) {
+            Options options = new Options();
+            boolean modeGiven = false;
+            for (String arg : args) {
+                if (arg.startsWith("--heuristic=")) {
+                    options.heuristic = Heuristic.fromString(value(arg));
+                } else if (arg.startsWith("--shard=")) {
+                    String[] parts = value(arg).split("/");
+                    try {
+                        options.shardIndex = Integer.parseInt(parts[0]);
+                        options.shardCount = Integer.parseInt(parts[1]);
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        throw new IllegalArgumentException("Malformed option: " + arg);
+                    }
+                    if (options.shardIndex < 0 || options.shardIndex >= options.shardCount) {
+                        throw new IllegalArgumentException("Bad shard index: " + arg);
+                    }
+                } else if (arg.startsWith("--journal=")) {
+                    options.journal = value(arg);
+                } else if (arg.startsWith("--journal-flush=")) {
+                    options.journalFlushInterval = positiveInt(arg);
+                } else if (arg.startsWith("--progress=")) {
+                    options.progressInterval = positiveInt(arg);
+                } else if (arg.startsWith("--cache=")) {
+                    options.cache = value(arg);
+                } else if (arg.startsWith("--cache-size=")) {
+                    options.cacheSize = positiveInt(arg);
+                } else if (arg.startsWith("--report=")) {
+                    options.report = value(arg);
+                } else if (arg.startsWith("--routing=")) {
+                    options.routing = value(arg);
+                } else if (arg.equals("--resume")) {
+                    options.resume = true;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else if (!modeGiven) {
+                    options.mode = arg;
+                    modeGiven = true;
+                } else {
+                    options.files.add(arg);
+                }
+            }
+            if (options.resume && options.journal == null) {
+                throw new IllegalArgumentException("--resume requires --journal");
+            }
+            if (options.mode.equals("learn") && options.routing == null) {
+                throw new IllegalArgumentException("learn requires --routing");
+            }
+            return options;
+        }
+
+        private static String value(String option) {
+            return option.substring(option.indexOf('=') + 1);
+        }
+
+        private static int positiveInt(String option) {
+            try {
+                int value = Integer.parseInt(value(option));
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through
+            }
+            throw new IllegalArgumentException("Malformed option: " + option);
+        }
+
+        boolean isSharded() {
+            return shardCount > 1;
+        }
+
+    }
+
+    /**
+     * Solves the grids in the shard selected by the options. If the run is sharded, writes a
+     * partial result in which the output for each input is preceded by a line "# input k", and
+     * which begins with a line "# shard i of n" and ends with a line "# total t" holding the
+     * number of inputs of the whole run, followed by a line "# sum s" holding the partial Project
+     * Euler sum. Grids outside the shard, or whose output is replayed from the journal,
+     * are skipped without being parsed, and so are grids found in the solution cache.
+     */
+    private static void readGridsAndWriteSolutions(BufferedReader input, Writer output,
+            Options options) throws IOException {
+        try (Journal journal = options.journal == null ? null
+                : Journal.open(options.journal, options.resume, options.journalFlushInterval);
+                SolutionCache cache = options.cache == null ? null
+                        : SolutionCache.open(options.cache, options.cacheSize)) {
+            Optional<Router> router = options.routing == null ? Optional.<Router>empty()
+                    : Optional.of(Router.load(options.routing));
+            readGridsAndWriteSolutions(input, output, options, Optional.ofNullable(journal),
+                    Optional.ofNullable(cache), router);
+        }
+    }
+
+    private static void readGridsAndWriteSolutions(BufferedReader input, Writer output,
+            Options options, Optional<Journal> journal, Optional<SolutionCache> cache,
+            Optional<Router> router) throws IOException {
         int inputCounter = 0;
         int projectEulerSum = 0;
-        for (Optional<Grid> grid = readGrid(input); grid.isPresent(); grid =
-                readGrid(input)) {
+        // Closed as well if the run fails, to stop the throughput reports
+        try (BatchMonitor monitor = new BatchMonitor(System.err, options.progressInterval)) {
+            if (options.isSharded()) {
+                output.write("# shard " + options.shardIndex + " of " + options.shardCount + "\n");
+            }
+            for (Optional<String> gridAsString = readGridString(input); gridAsString
+                    .isPresent(); gridAsString = readGridString(input)) {
+                ++inputCounter;
+                if ((inputCounter - 1) % options.shardCount != options.shardIndex) {
+                    continue;
+                }
+                Optional<String> recorded = journal.isPresent()
+                        ? journal.get().recorded(inputCounter, gridAsString.get())
+                        : Optional.<String>empty();
+                String inputOutput;
+                if (recorded.isPresent()) {
+                    inputOutput = recorded.get();
+                    projectEulerSum += projectEulerTerm(inputOutput);
+                } else {
+                    long start = System.nanoTime();
+                    Optional<Optional<Grid>> cached = cache.isPresent()
+                            ? cache.get().lookup(gridAsString.get())
+                            : Optional.<Optional<Grid>>empty();
+                    Optional<Grid> solved;
+                    if (cached.isPresent()) {
+                        solved = cached.get();
+                    } else {
+                        Grid grid = parse(gridAsString.get());
+                        solved = router.isPresent() ? router.get().solve(grid, new Statistics())
+                                : Solver.solve(grid, options.heuristic, new Statistics(),
+                                        inputCounter);
+                        if (cache.isPresent()) {
+                            cache.get().add(gridAsString.get(), solved);
+                        }
+                    }
+                    monitor.recordSolve(System.nanoTime() - start);
+                    if (solved.isPresent()) {
+                        String solvedAsString = addLineFeeds(solved.get().toString());
+                        inputOutput = "Solution to input " + inputCounter + ":\n"
+                                + solvedAsString + "\n";
+                        projectEulerSum += threeDigitNumber(solved.get());
+                    } else {
+                        inputOutput = "Input " + inputCounter + " has no solution.\n\n";
+                    }
+                    if (journal.isPresent()) {
+                        journal.get().record(inputCounter, gridAsString.get(), inputOutput);
+                    }
+                }
+                if (options.isSharded()) {
+                    output.write("# input " + inputCounter + "\n");
+                }
+                output.write(inputOutput);
+                output.flush();
+            }
+            if (options.isSharded()) {
+                output.write("# total " + inputCounter + "\n");
+                output.write("# sum " + projectEulerSum + "\n");
+            } else {
+                output.write("Project Euler 96 sum: " + projectEulerSum);
+            }
+            output.flush();
+            monitor.finish();
+        }
+    }
+
+    /**
+     * Returns the term of the Project Euler sum contributed by the specified output for an input.
+     */
+    private static int projectEulerTerm(String inputOutput) {
+        if (!inputOutput.startsWith("Solution")) {
+            return 0;
+        }
+        int firstRow = inputOutput.indexOf('\n') + 1;
+        return Integer.parseInt(inputOutput.substring(firstRow, firstRow + 3));
+    }
+
+    /**
+     * Combines the partial results written by sharded runs into the output of a single run over
+     * all inputs.
+     * 
+     * @throws IOException if a partial result is malformed or incomplete, or if the partial
+     *                     results do not cover every shard and every input exactly once
+     */
+    private static void mergePartialResults(List<String> files, Writer output)
+            throws IOException {
+        SortedMap<Integer, String> outputs = new TreeMap<>();
+        Set<Integer> shards = new HashSet<>();
+        Set<Integer> totals = new HashSet<>();
+        int shardCount = -1;
+        int projectEulerSum = 0;
+        for (String file : files) {
+            try (BufferedReader partial = new BufferedReader(new FileReader(file))) {
+                String header = partial.readLine();
+                String[] words = header == null ? new String[0] : header.split(" ");
+                if (words.length != 5 || !header.startsWith("# shard ")) {
+                    throw new IOException("Not a partial result: " + file);
+                }
+                if (shardCount != -1 && shardCount != Integer.parseInt(words[4])) {
+                    throw new IOException("Partial results with different shard counts");
+                }
+                shardCount = Integer.parseInt(words[4]);
+                int shardIndex = Integer.parseInt(words[2]);
+                if (shardIndex < 0 || shardIndex >= shardCount) {
+                    throw new IOException("Malformed partial result: " + file);
+                }
+                if (!shards.add(shardIndex)) {
+                    throw new IOException("Shard " + words[2] + " given more than once");
+                }
+                projectEulerSum += readOutputs(partial, outputs, totals, file);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed partial result: " + file);
+            }
+        }
+        if (shards.size() != shardCount) {
+            throw new IOException("Missing shards: got " + shards.size() + " of " + shardCount);
+        }
+        if (totals.size() > 1) {
+            throw new IOException("Partial results with different input counts: " + totals);
+        }
+        // The indices are distinct, so they run from 1 to the total if they are all in range
+        int total = totals.isEmpty() ? 0 : totals.iterator().next();
+        if (outputs.size() != total
+                || (total > 0 && (outputs.firstKey() < 1 || outputs.lastKey() > total))) {
+            throw new IOException("Missing inputs: got " + outputs.size() + " of " + total);
+        }
+        for (String inputOutput : outputs.values()) {
+            output.write(inputOutput);
+        }
+        output.write("Project Euler 96 sum: " + projectEulerSum);
+        output.flush();
+    }
+
+    /**
+     * Reads the outputs for each input in a partial result, following its header, into the
+     * specified map, and adds the number of inputs of the whole run to the specified set. Returns
+     * the partial Project Euler sum.
+     * 
+     * @throws IOException if the partial result is malformed or incomplete, or if it holds the
+     *                     output for an input that is already in the map
+     */
+    private static int readOutputs(BufferedReader partial, Map<Integer, String> outputs,
+            Set<Integer> totals, String file) throws IOException {
+        int inputIndex = -1;
+        StringBuilder inputOutput = null;
+        for (String line = partial.readLine(); line != null; line = partial.readLine()) {
+            boolean startsInput = line.startsWith("# input ");
+            boolean isTotal = line.startsWith("# total ");
+            if ((startsInput || isTotal) && inputOutput != null
+                    && outputs.put(inputIndex, inputOutput.toString()) != null) {
+                throw new IOException("Input " + inputIndex + " given more than once");
+            }
+            if (startsInput) {
+                inputIndex = Integer.parseInt(line.substring("# input ".length()));
+                inputOutput = new StringBuilder();
+            } else if (isTotal) {
+                totals.add(Integer.parseInt(line.substring("# total ".length())));
+                String sum = partial.readLine();
+                if (sum == null || !sum.startsWith("# sum ")) {
+                    throw new IOException("Incomplete partial result: " + file);
+                }
+                return Integer.parseInt(sum.substring("# sum ".length()));
+            } else if (inputOutput != null) {
+                inputOutput.append(line).append('\n');
+            } else {
+                throw new IOException("Malformed partial result: " + file);
+            }
+        }
+        throw new IOException("Incomplete partial result: " + file);
+    }
+
+    /**
+     * Reads puzzles given one per line as strings of 81 digits, as returned by
+     * {@link Grid#toString()}, and checks each of them with {@link Grid#tryParse(CharSequence)}.
+     * Blank lines are ignored. Writes a line for each invalid puzzle, telling its line number and
+     * the problem found, followed by a line with the number of puzzles with each status.
+     */
+    private static void readLinesAndWriteErrorReport(BufferedReader input, Writer output)
+            throws IOException {
+        Map<ParseResult.Status, Integer> counts = new EnumMap<>(ParseResult.Status.class);
+        for (ParseResult.Status status : ParseResult.Status.values()) {
+            counts.put(status, 0);
+        }
+        int lineCounter = 0;
+        int puzzles = 0;
+        for (String line = input.readLine(); line != null; line = input.readLine()) {
+            ++lineCounter;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            ++puzzles;
+            ParseResult result = Grid.tryParse(line);
+            counts.put(result.getStatus(), counts.get(result.getStatus()) + 1);
+            if (!result.isValid()) {
+                output.write("Line " + lineCounter + ": " + result + "\n");
+            }
+        }
+        output.write("Checked " + puzzles + " puzzles: " + counts.entrySet().stream()
+                .map(count -> count.getValue() + " " + count.getKey())
+                .collect(Collectors.joining(", ")) + "\n");
+        output.flush();
+    }
+
+    /**
+     * Reads grids given one per line with their pencil marks, in the format of
+     * {@link AnnotatedGrid#fromPencilMarks(CharSequence)}, and writes their solutions as solve
+     * mode does. The search respects the candidates left out of the marks. Blank lines are
+     * ignored, and a line that is not a valid string of pencil marks is reported instead.
+     */
+    private static void readPencilMarksAndWriteSolutions(BufferedReader input, Writer output,
+            Heuristic heuristic) throws IOException {
+        int inputCounter = 0;
+        for (String line = input.readLine(); line != null; line = input.readLine()) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
             ++inputCounter;
-            Optional<Grid> solved = Solver.solve(grid.get());
+            AnnotatedGrid grid;
+            try {
+                grid = AnnotatedGrid.fromPencilMarks(line.trim());
+            } catch (GridParserException e) {
+                output.write("Input " + inputCounter + " is invalid: " + e.getMessage() + "\n\n");
+                continue;
+            }
+            Optional<Grid> solved = Solver.solveAnnotated(grid, heuristic);
             if (solved.isPresent()) {
-                String solvedAsString = addLineFeeds(solved.get().toString());
-                output.write("Solution to input " + inputCounter + ":\n" + solvedAsString + "\n");
-                projectEulerSum += threeDigitNumber(solved.get());
+                output.write("Solution to input " + inputCounter + ":\n"
+                        + addLineFeeds(solved.get().toString()) + "\n");
             } else {
                 output.write("Input " + inputCounter + " has no solution.\n\n");
             }
-            output.flush();
         }
-        output.write("Project Euler 96 sum: " + projectEulerSum);
         output.flush();
     }
 
+    /**
+     * Reads grids and learns a routing table from them, as {@link Router#learn} does with
+     * {@link Router#learnableConfigurations()}, taking the shortest of {@value #LEARNING_RUNS}
+     * runs of each configuration. Saves the table to the specified path and writes it to the
+     * output, after a line with the number of grids in each bucket.
+     */
+    private static void readGridsAndLearnRoutes(BufferedReader input, Writer output, String path)
+            throws IOException {
+        List<Grid> grids = new ArrayList<>();
+        SortedMap<String, Integer> buckets = new TreeMap<>();
+        for (Optional<Grid> grid = readGrid(input); grid.isPresent(); grid = readGrid(input)) {
+            grids.add(grid.get());
+            buckets.merge(Router.Features.of(grid.get()).bucket(), 1, Integer::sum);
+        }
+        if (grids.isEmpty()) {
+            throw new IOException("No grids to learn from");
+        }
+        Router router = Router.learn(grids, Router.learnableConfigurations(), LEARNING_RUNS);
+        router.save(path);
+        output.write("Learned from " + grids.size() + " grids: " + buckets.entrySet().stream()
+                .map(bucket -> bucket.getValue() + " " + bucket.getKey())
+                .collect(Collectors.joining(", ")) + "\n");
+        router.write(output);
+    }
+
+    /**
+     * Reads grids and writes, for each of them, a line with the number of steps taken by the
+     * search and its outcome, followed by one indented line per step, as decoded by
+     * {@link SolveTrace#steps()}. Only the last {@value #TRACE_CAPACITY} steps of each search are
+     * written.
+     */
+    private static void readGridsAndWriteTraces(BufferedReader input, Writer output,
+            Heuristic heuristic) throws IOException {
+        SolveTrace trace = new SolveTrace(TRACE_CAPACITY);
+        int inputCounter = 0;
+        for (Optional<Grid> grid = readGrid(input); grid.isPresent(); grid = readGrid(input)) {
+            ++inputCounter;
+            boolean solved = Solver.solve(grid.get(), heuristic, trace).isPresent();
+            output.write("Grid " + inputCounter + ": " + trace.getRecorded() + " steps, "
+                    + (solved ? "solved" : "unsolvable")
+                    + (trace.getDropped() > 0 ? " (first " + trace.getDropped() + " dropped)" : "")
+                    + "\n");
+            for (SolveTrace.Step step : trace.steps()) {
+                output.write("  " + step + "\n");
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads consecutive pairs of grids, each made of a puzzle followed by a claimed solution, and
+     * writes one line per pair telling whether the claimed solution is a solution of the puzzle.
+     */
+    private static void readPairsAndWriteVerdicts(BufferedReader input, Writer output)
+            throws IOException {
+        int pairCounter = 0;
+        for (Optional<Grid> puzzle = readGrid(input); puzzle.isPresent(); puzzle =
+                readGrid(input)) {
+            ++pairCounter;
+            Optional<Grid> claimed = readGrid(input);
+            if (!claimed.isPresent()) {
+                output.write("Pair " + pairCounter + ": fail (missing solution)\n");
+                break;
+            }
+            output.write("Pair " + pairCounter + ": " + verdict(puzzle.get(), claimed.get()) + "\n");
+        }
+        output.flush();
+    }
+
+    /**
+     * Returns "pass" if the claimed grid is a solution of the puzzle, or "fail" followed by the
+     * reason otherwise.
+     */
+    private static String verdict(Grid puzzle, Grid claimed) {
+        if (claimed.isSolutionOf(puzzle)) {
+            return "pass";
+        } else if (claimed.hasEmptyCell()) {
+            return "fail (incomplete)";
+        } else if (!claimed.isConsistent()) {
+            return "fail (inconsistent)";
+        } else {
+            return "fail (disagrees with clues)";
+        }
+    }
+
     /**
      * Reads the next grid in the specified character-input stream.
      * 
@@ -60,11 +560,21 @@ public class App {
      * @throws IOException
      */
     public static Optional<Grid> readGrid(BufferedReader input) throws IOException {
+        Optional<String> gridAsString = readGridString(input);
+        return gridAsString.isPresent() ? Optional.of(parse(gridAsString.get()))
+                : Optional.<Grid>empty();
+    }
+
+    /**
+     * Reads the next nine consecutive lines representing rows, as described in
+     * {@link #readGrid(BufferedReader)}, and returns their concatenation.
+     */
+    private static Optional<String> readGridString(BufferedReader input) throws IOException {
         Stack<String> rows = new Stack<String>();
         while (rows.size() < 9) {
             String line = input.readLine();
             if (line == null) {
-                return Optional.<Grid>empty();
+                return Optional.<String>empty();
             }
             if (representsRow(line)) {
                 rows.push(line);
@@ -72,9 +582,15 @@ public class App {
                 rows.clear();
             }
         }
-        String gridAsString = rows.stream().collect(Collectors.joining());
+        return Optional.of(rows.stream().collect(Collectors.joining()));
+    }
+
+    /**
+     * Parses the concatenation of nine lines representing rows.
+     */
+    private static Grid parse(String gridAsString) {
         try {
-            return Optional.of(Grid.fromString(gridAsString));
+            return Grid.fromString(gridAsString);
         } catch (GridParserException gpe) {
             // Doesn't happen
             throw new AssertionError();
@@ -86,7 +602,8 @@ public class App {
             return false;
         }
         for (int i = 0; i < str.length(); i++) {
-            if (!Character.isDigit(str.charAt(i))) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
                 return false;
             }
         }
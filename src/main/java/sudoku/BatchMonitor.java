@@ -0,0 +1,91 @@
+package sudoku;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the solve times of a batch run. Optionally reports the throughput at regular
+ * intervals while the run is in progress, and reports latency percentiles at its end.
+ * 
+ * The throughput is reported by a daemon thread of the monitor, so that reports keep coming during
+ * a long solve, or while a journal is replayed. The thread is stopped when the monitor is closed,
+ * which {@link #finish()} does.
+ */
+final class BatchMonitor implements AutoCloseable {
+
+    private final PrintStream log;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final long start = System.nanoTime();
+    // The number of puzzles solved, which the reporting thread reads
+    private final AtomicLong solved = new AtomicLong();
+    // The thread that reports the throughput, or null
+    private final ScheduledExecutorService reporter;
+    private long lastReport = start;
+    private long solvedAtLastReport = 0;
+
+    /**
+     * @param reportIntervalSeconds the interval between throughput reports, or zero for no
+     *                              reports while the run is in progress
+     */
+    BatchMonitor(PrintStream log, long reportIntervalSeconds) {
+        this.log = log;
+        if (reportIntervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sudoku-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(this::report, reportIntervalSeconds,
+                    reportIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            reporter = null;
+        }
+    }
+
+    /** Records the time taken to solve a puzzle. */
+    void recordSolve(long nanos) {
+        latencies.record(nanos);
+        solved.incrementAndGet();
+    }
+
+    /** Reports the throughput since the last report. Only called by the reporting thread. */
+    private void report() {
+        long now = System.nanoTime();
+        long solvedNow = solved.get();
+        log.println(String.format(Locale.ROOT, "[%.1f s] %d puzzles solved, %.1f puzzles/s",
+                (now - start) / 1e9, solvedNow,
+                (solvedNow - solvedAtLastReport) * 1e9 / (now - lastReport)));
+        lastReport = now;
+        solvedAtLastReport = solvedNow;
+    }
+
+    /** Reports the overall throughput and the latency percentiles, and closes this monitor. */
+    void finish() {
+        close();
+        long elapsed = System.nanoTime() - start;
+        log.println(String.format(Locale.ROOT, "Solved %d puzzles in %.3f s (%.1f puzzles/s)",
+                latencies.getCount(), elapsed / 1e9, latencies.getCount() * 1e9 / elapsed));
+        if (latencies.getCount() > 0) {
+            log.println("Latency: " + latencies.summary());
+        }
+    }
+
+    /** Stops the throughput reports, waiting for one in progress to be written. */
+    @Override
+    public void close() {
+        if (reporter == null) {
+            return;
+        }
+        reporter.shutdownNow();
+        try {
+            reporter.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
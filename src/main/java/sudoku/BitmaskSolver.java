@@ -0,0 +1,383 @@
+package sudoku;
+
+import java.util.Optional;
+import sudoku.GridElements.Cell;
+import sudoku.exceptions.SolverInterruptedException;
+
+/**
+ * A depth-first search over a grid represented by arrays of primitive values, which allocates
+ * nothing once it is constructed. An instance can be reused for any number of grids, but not by
+ * several threads at once.
+ * 
+ * Each digit is represented by a bit, and the digits already placed in each unit are kept as
+ * bitmasks, so the candidates for a cell are found with a few bitwise operations over the units
+ * that contain it. The units are those of a {@link Units}, which are the rows, columns and boxes
+ * unless a variant is given. For each cage, the sum still missing and the number of empty cells
+ * are kept as well, and the candidates of its cells are limited to the digits that can still make
+ * up the sum. The search always branches on an empty cell with the fewest candidates, trying them
+ * in increasing order.
+ */
+final class BitmaskSolver {
+
+    private static final int ALL_DIGITS = 0x1FF;
+    private static final Digit[] DIGITS = Digit.values();
+
+    private static final Units STANDARD = Units.standard();
+
+    private final Units units;
+
+    // The row, column and box or region of each cell, which are the first 27 units, packed into
+    // the three lowest bytes of an int
+    private final int[] basicUnits = new int[81];
+
+    // The units other than rows, columns and regions, such as diagonals and cages, are numbered
+    // from zero, and those that contain each cell are extraUnits[firstExtra[cell]] to
+    // extraUnits[firstExtra[cell + 1] - 1]
+    private final int[] extraUnits;
+    private final int[] firstExtra = new int[82];
+    // The sum of each extra unit that is a cage, or zero
+    private final int[] sums;
+    private final boolean hasCages;
+
+    // The bit of the digit in each cell, or zero for an empty cell
+    private final int[] cells = new int[81];
+    // The bits of the digits placed in each row, column and region, and in each extra unit
+    private final int[] masks = new int[Units.BASIC_UNITS];
+    private final int[] extras;
+    // The sum still missing from each extra unit that is a cage, and the number of its cells that
+    // are empty
+    private final int[] missingSums;
+    private final int[] emptyCells;
+
+    // The indices of the empty cells are kept in the first emptyCount positions of this array
+    private final int[] empty = new int[81];
+    private int emptyCount;
+
+    private long nodes;
+
+    // The cancellation of the current search, or null
+    private Cancellation cancellation;
+
+    /** Creates a solver for standard grids. */
+    BitmaskSolver() {
+        this(STANDARD);
+    }
+
+    /** Creates a solver for grids with the specified units. */
+    BitmaskSolver(Units units) {
+        this.units = units;
+        int count = 0;
+        for (int cell = 0; cell < 81; cell++) {
+            firstExtra[cell] = count;
+            count += units.unitsOf(cell).length - 3;
+        }
+        firstExtra[81] = count;
+        this.extraUnits = new int[count];
+        for (int cell = 0; cell < 81; cell++) {
+            int[] unitsOfCell = units.unitsOf(cell);
+            basicUnits[cell] = unitsOfCell[0] | unitsOfCell[1] << 8 | unitsOfCell[2] << 16;
+            for (int i = 3; i < unitsOfCell.length; i++) {
+                extraUnits[firstExtra[cell] + i - 3] = unitsOfCell[i] - Units.BASIC_UNITS;
+            }
+        }
+        int extraCount = units.size() - Units.BASIC_UNITS;
+        this.sums = new int[extraCount];
+        boolean anyCages = false;
+        for (int extra = 0; extra < extraCount; extra++) {
+            sums[extra] = units.sumOf(Units.BASIC_UNITS + extra);
+            anyCages |= sums[extra] > 0;
+        }
+        this.hasCages = anyCages;
+        this.extras = new int[extraCount];
+        this.missingSums = new int[extraCount];
+        this.emptyCells = new int[extraCount];
+    }
+
+    /** Empties the grid, resets the node count and drops the cancellation of the last search. */
+    void clear() {
+        cancellation = null;
+        for (int unit = 0; unit < Units.BASIC_UNITS; unit++) {
+            masks[unit] = 0;
+        }
+        for (int extra = 0; extra < extras.length; extra++) {
+            extras[extra] = 0;
+            missingSums[extra] = sums[extra];
+            emptyCells[extra] = units.cellsOf(Units.BASIC_UNITS + extra).length;
+        }
+        for (int i = 0; i < 81; i++) {
+            cells[i] = 0;
+            empty[i] = i;
+        }
+        emptyCount = 81;
+        nodes = 0;
+    }
+
+    /**
+     * Places a clue in an empty cell.
+     * 
+     * @param cell  the index of the cell, in row-major order
+     * @param digit a digit from 1 to 9
+     * @return false if the digit already appears in a unit of the cell, or leaves no way to make up
+     *         the sum of a cage, in which case the clue is not placed
+     */
+    boolean placeClue(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        if ((candidates(cell) & bit) == 0) {
+            return false;
+        }
+        for (int i = firstExtra[cell]; i < firstExtra[cell + 1]; i++) {
+            int extra = extraUnits[i];
+            int missing = missingSums[extra] - digit;
+            if (sums[extra] > 0 && (emptyCells[extra] == 1 ? missing != 0
+                    : Units.digitsForSum(emptyCells[extra] - 1, missing, extras[extra] | bit)
+                            == 0)) {
+                return false;
+            }
+        }
+        set(cell, bit);
+        for (int i = 0; i < emptyCount; i++) {
+            if (empty[i] == cell) {
+                empty[i] = empty[--emptyCount];
+                empty[emptyCount] = cell;
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills in the empty cells with a solution of the clues placed so far, if one exists.
+     * 
+     * @return true if, and only if, a solution was found
+     * @throws SolverInterruptedException if the cancellation given to the current search is
+     *                                    cancelled
+     */
+    boolean solve() {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+        ++nodes;
+        int bestPosition = -1;
+        int bestCandidates = 0;
+        int fewest = 10;
+        // Read once, since the compiler does not assume that final instance fields stay the same
+        int[] masks = this.masks;
+        int[] basicUnits = this.basicUnits;
+        boolean hasExtras = extras.length != 0;
+        for (int i = 0; i < emptyCount; i++) {
+            int cell = empty[i];
+            int packed = basicUnits[cell];
+            int candidates = ~(masks[packed & 0xFF] | masks[(packed >> 8) & 0xFF]
+                    | masks[packed >> 16]) & ALL_DIGITS;
+            if (hasExtras) {
+                candidates = extraCandidates(cell, candidates);
+            }
+            int count = Integer.bitCount(candidates);
+            if (count < fewest) {
+                bestPosition = i;
+                bestCandidates = candidates;
+                fewest = count;
+                if (count <= 1) {
+                    break;
+                }
+            }
+        }
+        if (bestPosition == -1) {
+            return true;
+        }
+        if (fewest == 0) {
+            return false;
+        }
+        int cell = empty[bestPosition];
+        empty[bestPosition] = empty[--emptyCount];
+        empty[emptyCount] = cell;
+        for (int bits = bestCandidates; bits != 0; bits &= bits - 1) {
+            int bit = bits & -bits;
+            set(cell, bit);
+            if (solve()) {
+                return true;
+            }
+            unset(cell, bit);
+        }
+        ++emptyCount;
+        return false;
+    }
+
+    /** Returns the bits of the digits that can go in the specified empty cell. */
+    int candidates(int cell) {
+        int packed = basicUnits[cell];
+        int candidates = ~(masks[packed & 0xFF] | masks[(packed >> 8) & 0xFF]
+                | masks[packed >> 16]) & ALL_DIGITS;
+        return extras.length == 0 ? candidates : extraCandidates(cell, candidates);
+    }
+
+    /**
+     * Returns the specified candidates of an empty cell, less those ruled out by the units other
+     * than its row, column and region.
+     */
+    private int extraCandidates(int cell, int candidates) {
+        for (int i = firstExtra[cell], end = firstExtra[cell + 1]; i < end; i++) {
+            candidates &= ~extras[extraUnits[i]];
+        }
+        if (!hasCages) {
+            return candidates;
+        }
+        for (int i = firstExtra[cell], end = firstExtra[cell + 1]; i < end; i++) {
+            int extra = extraUnits[i];
+            if (sums[extra] > 0) {
+                candidates &= Units.digitsForSum(emptyCells[extra], missingSums[extra],
+                        extras[extra]);
+            }
+        }
+        return candidates;
+    }
+
+    private void set(int cell, int bit) {
+        cells[cell] = bit;
+        int packed = basicUnits[cell];
+        masks[packed & 0xFF] |= bit;
+        masks[(packed >> 8) & 0xFF] |= bit;
+        masks[packed >> 16] |= bit;
+        if (extras.length == 0) {
+            return;
+        }
+        int digit = Integer.numberOfTrailingZeros(bit) + 1;
+        for (int i = firstExtra[cell], end = firstExtra[cell + 1]; i < end; i++) {
+            int extra = extraUnits[i];
+            extras[extra] |= bit;
+            missingSums[extra] -= digit;
+            --emptyCells[extra];
+        }
+    }
+
+    private void unset(int cell, int bit) {
+        cells[cell] = 0;
+        int packed = basicUnits[cell];
+        masks[packed & 0xFF] &= ~bit;
+        masks[(packed >> 8) & 0xFF] &= ~bit;
+        masks[packed >> 16] &= ~bit;
+        if (extras.length == 0) {
+            return;
+        }
+        int digit = Integer.numberOfTrailingZeros(bit) + 1;
+        for (int i = firstExtra[cell], end = firstExtra[cell + 1]; i < end; i++) {
+            int extra = extraUnits[i];
+            extras[extra] &= ~bit;
+            missingSums[extra] += digit;
+            ++emptyCells[extra];
+        }
+    }
+
+    /**
+     * Empties the grid and places the digits of the specified grid as clues.
+     * 
+     * @return false if a digit of the grid conflicts with those placed before it, in which case
+     *         the clues placed before it are kept
+     */
+    boolean placeClues(Grid grid) {
+        clear();
+        for (Cell cell : grid.nonEmptyCells()) {
+            int digit = grid.digitAt(cell).get().ordinal() + 1;
+            if (!placeClue(9 * cell.getRow() + cell.getColumn(), digit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places the only candidate of an empty cell as a clue, as long as there is an empty cell with
+     * a single candidate.
+     * 
+     * @return the number of digits placed, or -1 if an empty cell was left without candidates
+     */
+    int placeNakedSingles() {
+        int placed = 0;
+        for (boolean progress = true; progress;) {
+            progress = false;
+            for (int i = 0; i < emptyCount;) {
+                int cell = empty[i];
+                int candidates = candidates(cell);
+                if ((candidates & (candidates - 1)) != 0) {
+                    ++i;
+                    continue;
+                }
+                if (candidates == 0
+                        || !placeClue(cell, Integer.numberOfTrailingZeros(candidates) + 1)) {
+                    return -1;
+                }
+                // The last empty cell took the place of this one
+                ++placed;
+                progress = true;
+            }
+        }
+        return placed;
+    }
+
+    /** Returns the number of empty cells. */
+    int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /** Returns the index of the empty cell at the specified position, less than the empty count. */
+    int emptyCell(int position) {
+        return empty[position];
+    }
+
+    /** Returns the number of digits placed in the specified row, column or region. */
+    int filledCells(int unit) {
+        return Integer.bitCount(masks[unit]);
+    }
+
+    /**
+     * Fills in the empty cells with a solution of the clues placed so far and returns it, if one
+     * exists. Records the nodes visited in the specified statistics.
+     */
+    Optional<Grid> solvePlaced(Statistics statistics) {
+        boolean solved = solve();
+        statistics.countNodes(nodes);
+        if (!solved) {
+            return Optional.empty();
+        }
+        Grid solution = new Grid();
+        for (Cell cell : GridElements.cells()) {
+            int digit = digitAt(9 * cell.getRow() + cell.getColumn());
+            solution.setDigit(cell, DIGITS[digit - 1]);
+        }
+        return Optional.of(solution);
+    }
+
+    /**
+     * Empties the grid, places the digits of the specified grid as clues and returns a solution,
+     * if one exists. Records the nodes visited in the specified statistics.
+     */
+    Optional<Grid> solve(Grid grid, Statistics statistics) {
+        return solve(grid, statistics, null);
+    }
+
+    /**
+     * Solves the specified grid as {@link #solve(Grid, Statistics)} does, stopping once the
+     * specified cancellation, unless it is null, is cancelled.
+     * 
+     * @throws SolverInterruptedException if the cancellation is cancelled
+     */
+    Optional<Grid> solve(Grid grid, Statistics statistics, Cancellation cancellation) {
+        if (!placeClues(grid)) {
+            statistics.countNodes(1);
+            return Optional.empty();
+        }
+        this.cancellation = cancellation;
+        return solvePlaced(statistics);
+    }
+
+    /** Returns the digit in the specified cell, or zero if the cell is empty. */
+    int digitAt(int cell) {
+        return 32 - Integer.numberOfLeadingZeros(cells[cell]);
+    }
+
+    /** Returns the number of nodes visited since the grid was last cleared. */
+    long getNodes() {
+        return nodes;
+    }
+
+}
@@ -0,0 +1,118 @@
+package sudoku;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Solves puzzles stored back to back in a byte buffer, writing the results to another byte
+ * buffer. The buffers may be direct or mapped from a file, so that large batches of puzzles can be
+ * solved without copying them onto the heap. No grid or other object is created per puzzle.
+ * 
+ * A puzzle takes {@value #PUZZLE_SIZE} bytes, one for each cell in row-major order. A cell holds
+ * either a digit character from '0' to '9' or a number from 0 to 9, where zero stands for a blank
+ * cell. The result for a puzzle takes {@value #RESULT_SIZE} bytes: the 81 digit characters of the
+ * solution, as in {@link Grid#toString()}, followed by a status byte. If the puzzle is not solved,
+ * the 81 bytes hold its clues instead, with blank and malformed cells as '0'.
+ */
+public final class BulkSolver {
+
+    /** The number of bytes taken by a puzzle */
+    public static final int PUZZLE_SIZE = 81;
+
+    /** The number of bytes taken by the result for a puzzle */
+    public static final int RESULT_SIZE = 82;
+
+    /** Status of a puzzle that was solved */
+    public static final byte SOLVED = 0;
+
+    /** Status of a puzzle that has no solution, including one whose clues are inconsistent */
+    public static final byte UNSOLVABLE = 1;
+
+    /** Status of a puzzle with a byte that is neither a digit character nor a number up to 9 */
+    public static final byte MALFORMED = 2;
+
+    // The number of consecutive puzzles solved by a task, so that a task does enough work to
+    // outweigh the cost of scheduling it
+    private static final int PUZZLES_PER_TASK = 64;
+
+    private BulkSolver() {
+    }
+
+    /**
+     * Solves the puzzles between the position and the limit of the first buffer, writing their
+     * results to the second buffer from its position. On return, the position of the first buffer
+     * equals its limit and the position of the second buffer is advanced past the results. The
+     * puzzles are split into chunks that are solved in parallel, in the common fork/join pool.
+     * 
+     * @return the number of puzzles solved
+     * @throws IllegalArgumentException if the number of bytes remaining in the first buffer is not
+     *                                  a multiple of {@value #PUZZLE_SIZE}, or the second buffer
+     *                                  does not have room for the results
+     */
+    public static int solveAll(ByteBuffer puzzles, ByteBuffer solutions) {
+        if (puzzles.remaining() % PUZZLE_SIZE != 0) {
+            throw new IllegalArgumentException(
+                    "Incomplete puzzle: " + puzzles.remaining() + " bytes remaining");
+        }
+        int count = puzzles.remaining() / PUZZLE_SIZE;
+        if (solutions.remaining() / RESULT_SIZE < count) {
+            throw new IllegalArgumentException("No room for the results of " + count + " puzzles");
+        }
+        int puzzlesStart = puzzles.position();
+        int solutionsStart = solutions.position();
+        int tasks = (count + PUZZLES_PER_TASK - 1) / PUZZLES_PER_TASK;
+        int solved = IntStream.range(0, tasks).parallel().map(task -> {
+            // The absolute get and put methods leave the positions of the buffers alone, so the
+            // tasks can share them
+            BitmaskSolver solver = new BitmaskSolver();
+            int end = Math.min(count, (task + 1) * PUZZLES_PER_TASK);
+            int solvedByTask = 0;
+            for (int i = task * PUZZLES_PER_TASK; i < end; i++) {
+                byte status = solve(solver, puzzles, puzzlesStart + i * PUZZLE_SIZE,
+                        solutions, solutionsStart + i * RESULT_SIZE);
+                if (status == SOLVED) {
+                    ++solvedByTask;
+                }
+            }
+            return solvedByTask;
+        }).sum();
+        puzzles.position(puzzles.limit());
+        solutions.position(solutionsStart + count * RESULT_SIZE);
+        return solved;
+    }
+
+    /** Solves a single puzzle, writing its result, and returns its status. */
+    private static byte solve(BitmaskSolver solver, ByteBuffer puzzles, int from,
+            ByteBuffer solutions, int to) {
+        solver.clear();
+        byte status = SOLVED;
+        for (int cell = 0; cell < 81; cell++) {
+            int digit = digit(puzzles.get(from + cell));
+            if (digit < 0) {
+                status = MALFORMED;
+            } else if (digit > 0 && status == SOLVED && !solver.placeClue(cell, digit)) {
+                status = UNSOLVABLE;
+            }
+            solutions.put(to + cell, (byte) ('0' + Math.max(digit, 0)));
+        }
+        if (status == SOLVED && !solver.solve()) {
+            status = UNSOLVABLE;
+        }
+        if (status == SOLVED) {
+            for (int cell = 0; cell < 81; cell++) {
+                solutions.put(to + cell, (byte) ('0' + solver.digitAt(cell)));
+            }
+        }
+        solutions.put(to + 81, status);
+        return status;
+    }
+
+    /** Returns the digit represented by the specified byte, or -1 if there is none. */
+    private static int digit(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        return b >= 0 && b <= 9 ? b : -1;
+    }
+
+}
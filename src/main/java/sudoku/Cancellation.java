@@ -0,0 +1,32 @@
+package sudoku;
+
+import sudoku.exceptions.SolverInterruptedException;
+
+/**
+ * A flag that tells the searches it is given to stop, which they check at each node. Searches
+ * started without one cannot be cancelled, so the interrupt status of their threads is left
+ * alone, as it is for any other computation.
+ */
+final class Cancellation {
+
+    private volatile boolean cancelled = false;
+
+    /** Tells the searches given this flag to stop at their next node. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws SolverInterruptedException if this flag has been cancelled
+     */
+    void check() {
+        if (cancelled) {
+            throw new SolverInterruptedException();
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import sudoku.Portfolio.Configuration;
+import sudoku.exceptions.GridParserException;
+
+/**
+ * Solves the same grids with every solving strategy, checks that the strategies agree on which
+ * grids are solvable and that the solutions they find are solutions of the grids, and compares
+ * their throughput, latency and allocation. The strategies are the configurations of
+ * {@link Router#learnableConfigurations()}, those of the given heuristic if they are not among
+ * them, and {@link BulkSolver}, which is given one grid at a time. The portfolio and the router
+ * are left out: the router only picks one of these configurations, and the portfolio runs them on
+ * other threads, whose allocation is not measured.
+ * 
+ * The first grids warm up the engines: they are checked like the others, but their times and
+ * allocation are left out of the comparison, so that it is not skewed by the engines compiled
+ * first. The strategies take turns at solving each grid first, so that none of them always runs
+ * with the caches and the heap left by the same strategy.
+ */
+final class Comparison {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** The number of grids that warm up the engines before they are measured. */
+    static final int WARM_UP_INPUTS = 10;
+
+    /** The name under which {@link BulkSolver} appears in the comparison */
+    static final String BULK = "bulk";
+
+    /** The measurements for one strategy. */
+    private static final class Measurements {
+
+        final String name;
+        // The configuration of the search, or null for the bulk solver
+        final Configuration configuration;
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long totalNanos = 0;
+        long allocatedBytes = 0;
+        int solved = 0;
+        int invalid = 0;
+
+        Measurements(String name, Configuration configuration) {
+            this.name = name;
+            this.configuration = configuration;
+        }
+
+        double throughput() {
+            return totalNanos == 0 ? 0 : latencies.getCount() * 1e9 / totalNanos;
+        }
+
+        /** Returns the mean number of bytes allocated per solve, or -1 if unknown. */
+        long bytesPerSolve() {
+            return allocatedBytes < 0 || latencies.getCount() == 0 ? -1
+                    : allocatedBytes / latencies.getCount();
+        }
+
+    }
+
+    private final List<Measurements> measurements = new ArrayList<>();
+    // The puzzle and result of the bulk solver, allocated once
+    private final ByteBuffer bulkPuzzle = ByteBuffer.allocate(BulkSolver.PUZZLE_SIZE);
+    private final ByteBuffer bulkResult = ByteBuffer.allocate(BulkSolver.RESULT_SIZE);
+    private int inputs = 0;
+    private int disagreements = 0;
+
+    Comparison(Heuristic heuristic) {
+        List<Configuration> configurations = new ArrayList<>(Router.learnableConfigurations());
+        for (Engine engine : Engine.values()) {
+            Configuration configuration = Configuration.of(engine, heuristic.getName());
+            if (engine != Engine.BITMASK && !configurations.contains(configuration)) {
+                configurations.add(configuration);
+            }
+        }
+        for (Configuration configuration : configurations) {
+            measurements.add(new Measurements(configuration.toString(), configuration));
+        }
+        measurements.add(new Measurements(BULK, null));
+    }
+
+    /** Returns the names of the strategies compared, in the order of the table. */
+    List<String> strategies() {
+        List<String> names = new ArrayList<>();
+        for (Measurements m : measurements) {
+            names.add(m.name);
+        }
+        return names;
+    }
+
+    /**
+     * Solves the grids read from the input with every strategy. Writes a line to the output for
+     * each grid on which the strategies disagree or one of them finds a wrong solution, followed
+     * by a table comparing the strategies. If a report path is given, also writes the comparison
+     * there as comma-separated values, with one line per strategy and times in nanoseconds.
+     */
+    static void run(BufferedReader input, Writer output, Heuristic heuristic,
+            Optional<String> report) throws IOException {
+        Comparison comparison = new Comparison(heuristic);
+        for (Optional<Grid> grid = App.readGrid(input); grid.isPresent(); grid =
+                App.readGrid(input)) {
+            comparison.compare(grid.get(), output);
+        }
+        comparison.writeTable(output);
+        if (report.isPresent()) {
+            try (Writer writer = new FileWriter(report.get())) {
+                comparison.writeReport(writer);
+            }
+        }
+    }
+
+    private void compare(Grid grid, Writer output) throws IOException {
+        ++inputs;
+        String[] verdicts = new String[measurements.size()];
+        boolean anySolved = false;
+        boolean anyUnsolved = false;
+        boolean anyInvalid = false;
+        boolean measured = inputs > WARM_UP_INPUTS;
+        for (int i = 0; i < measurements.size(); i++) {
+            // Rotate the order of the strategies from one grid to the next
+            int index = (inputs + i) % measurements.size();
+            Measurements m = measurements.get(index);
+            Statistics statistics = new Statistics();
+            // Randomized heuristics keep their state, so each solve gets a new instance
+            Heuristic heuristic = m.configuration == null ? null
+                    : Heuristic.fromString(m.configuration.getHeuristic());
+            if (m.configuration == null) {
+                bulkPuzzle.clear();
+                bulkPuzzle.put(grid.toString().getBytes(StandardCharsets.US_ASCII)).flip();
+                bulkResult.clear();
+            }
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            Optional<Grid> solution = Optional.empty();
+            if (m.configuration != null) {
+                solution = m.configuration.getEngine().solve(grid, heuristic, statistics);
+            } else {
+                BulkSolver.solveAll(bulkPuzzle, bulkResult);
+            }
+            long nanos = System.nanoTime() - start;
+            long allocatedBySolve = allocatedBytes() - allocated;
+            if (m.configuration == null) {
+                solution = bulkSolution();
+            }
+            if (measured) {
+                m.latencies.record(nanos);
+                m.totalNanos += nanos;
+                m.allocatedBytes = allocated < 0 || m.allocatedBytes < 0 ? -1
+                        : m.allocatedBytes + allocatedBySolve;
+            }
+            String verdict;
+            if (!solution.isPresent()) {
+                verdict = "unsolvable";
+                anyUnsolved = true;
+            } else if (solution.get().isSolutionOf(grid)) {
+                verdict = "solved";
+                m.solved++;
+                anySolved = true;
+            } else {
+                verdict = "wrong solution " + solution.get();
+                m.invalid++;
+                anyInvalid = true;
+            }
+            verdicts[index] = m.name + " " + verdict;
+        }
+        if (anyInvalid || (anySolved && anyUnsolved)) {
+            ++disagreements;
+            output.write("Input " + inputs + ": " + String.join(", ", verdicts) + "\n");
+        }
+    }
+
+    /** Returns the solution written by the bulk solver, if it found one. */
+    private Optional<Grid> bulkSolution() {
+        if (bulkResult.get(BulkSolver.PUZZLE_SIZE) != BulkSolver.SOLVED) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Grid.fromString(new String(bulkResult.array(), 0,
+                    BulkSolver.PUZZLE_SIZE, StandardCharsets.US_ASCII)));
+        } catch (GridParserException e) {
+            throw new IllegalStateException("Malformed bulk solution", e);
+        }
+    }
+
+    private void writeTable(Writer output) throws IOException {
+        output.write("Compared " + measurements.size() + " strategies on " + inputs + " inputs: "
+                + (disagreements == 0 ? "all agree" : disagreements + " disagreements") + "\n");
+        output.write("Times and allocation leave out the first " + WARM_UP_INPUTS
+                + " inputs, which warm up the engines\n");
+        output.write(String.format(Locale.ROOT,
+                "%-36s %7s %10s %10s %10s %10s %10s %10s %12s\n", "strategy", "solved",
+                "puzzles/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "bytes/solve"));
+        for (Measurements m : measurements) {
+            output.write(String.format(Locale.ROOT,
+                    "%-36s %7d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f %12s\n", m.name,
+                    m.solved, m.throughput(), m.latencies.valueAtPercentile(50) / 1e6,
+                    m.latencies.valueAtPercentile(90) / 1e6,
+                    m.latencies.valueAtPercentile(99) / 1e6,
+                    m.latencies.valueAtPercentile(99.9) / 1e6, m.latencies.getMax() / 1e6,
+                    m.bytesPerSolve() < 0 ? "n/a" : Long.toString(m.bytesPerSolve())));
+        }
+        output.flush();
+    }
+
+    private void writeReport(Writer report) throws IOException {
+        report.write("strategy,inputs,solved,invalid,disagreements,puzzles_per_second,p50_ns,"
+                + "p90_ns,p99_ns,p999_ns,max_ns,bytes_per_solve\n");
+        for (Measurements m : measurements) {
+            report.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%d,%d\n",
+                    m.name, inputs, m.solved, m.invalid, disagreements, m.throughput(),
+                    m.latencies.valueAtPercentile(50), m.latencies.valueAtPercentile(90),
+                    m.latencies.valueAtPercentile(99), m.latencies.valueAtPercentile(99.9),
+                    m.latencies.getMax(), m.bytesPerSolve()));
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or -1 if the Java
+     * runtime cannot measure it.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+}
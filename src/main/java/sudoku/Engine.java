@@ -0,0 +1,77 @@
+package sudoku;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.StreamSupport;
+import sudoku.exceptions.SolverInterruptedException;
+
+/**
+ * The search engines available to solve a grid. They find the same solutions, but explore the
+ * search tree differently, so their running times on a given grid may differ considerably.
+ */
+public enum Engine {
+
+    /** The recursive search of {@link Solver#solve(Grid, Heuristic, Statistics)}. */
+    RECURSIVE {
+        @Override
+        Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+                Cancellation cancellation) {
+            return Solver.solve(grid, heuristic, statistics, -1, cancellation);
+        }
+    },
+
+    /** The search with an explicit stack of nodes behind {@link Solver#solutions(Grid)}. */
+    STACK {
+        @Override
+        Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+                Cancellation cancellation) {
+            SolutionSpliterator solutions = new SolutionSpliterator(
+                    AnnotatedGrid.fromOrdinaryGrid(grid), heuristic, statistics, cancellation);
+            return StreamSupport.stream(solutions, false).findFirst();
+        }
+    },
+
+    /**
+     * The allocation-free search of {@link BitmaskSolver}, which ignores the specified heuristic
+     * and always branches on a cell with the fewest candidates.
+     */
+    BITMASK {
+        @Override
+        Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+                Cancellation cancellation) {
+            statistics.setHeuristic(Heuristic.fewestCandidates().getName());
+            return new BitmaskSolver().solve(grid, statistics, cancellation);
+        }
+    };
+
+    /**
+     * Returns a solution to the given Sudoku grid, if one exists, branching as directed by the
+     * specified heuristic. Records the work done in the specified statistics.
+     */
+    public Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics) {
+        return solve(grid, heuristic, statistics, null);
+    }
+
+    /**
+     * Solves the given grid as {@link #solve(Grid, Heuristic, Statistics)} does, stopping once the
+     * specified cancellation, unless it is null, is cancelled.
+     * 
+     * @throws SolverInterruptedException if the cancellation is cancelled
+     */
+    abstract Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+            Cancellation cancellation);
+
+    /** Returns the name of this engine in lower case, as accepted by {@link #fromString}. */
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no engine with the specified name
+     */
+    public static Engine fromString(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+}
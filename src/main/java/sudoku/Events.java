@@ -0,0 +1,125 @@
+package sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Contains the Java Flight Recorder events emitted by this program. They appear under the
+ * "Sudoku" category of a recording.
+ * 
+ * Events are only created once the Flight Recorder is initialized, since loading the first event
+ * class before that takes a noticeable fraction of a second. Afterwards, each event is committed
+ * only if it is enabled in an active recording, and its fields are only filled in after checking
+ * that it should be committed.
+ */
+final class Events {
+
+    private Events() {}
+
+    @Name("sudoku.Solve")
+    @Label("Solve")
+    @Category("Sudoku")
+    @Description("A whole solve of a grid")
+    @StackTrace(false)
+    static final class Solve extends Event {
+
+        @Label("Input Index")
+        @Description("Position of the grid in the batch input, or -1 outside of batch runs")
+        int inputIndex;
+
+        @Label("Clues")
+        int clues;
+
+        @Label("Heuristic")
+        String heuristic;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Backtracks")
+        long backtracks;
+
+    }
+
+    @Name("sudoku.Parse")
+    @Label("Parse")
+    @Category("Sudoku")
+    @Description("Parsing of a grid by Grid.fromString")
+    @StackTrace(false)
+    static final class Parse extends Event {
+
+        @Label("Valid")
+        boolean valid;
+
+    }
+
+    @Name("sudoku.Annotate")
+    @Label("Annotate")
+    @Category("Sudoku")
+    @Description("Computation of candidates by AnnotatedGrid.fromOrdinaryGrid")
+    @StackTrace(false)
+    static final class Annotate extends Event {
+
+        @Label("Clues")
+        int clues;
+
+    }
+
+    @Name("sudoku.Branch")
+    @Label("Branch Point")
+    @Category("Sudoku")
+    @Description("Exploration of the alternatives at a branch point of the search, except for the "
+            + "last one, which the search continues with")
+    @StackTrace(false)
+    @Enabled(false)
+    @Threshold("1 ms")
+    static final class Branch extends Event {
+
+        @Label("First Alternative")
+        String firstAlternative;
+
+        @Label("Alternatives")
+        int alternatives;
+
+        @Label("Nodes")
+        @Description("Nodes visited while exploring the alternatives")
+        long nodes;
+
+    }
+
+    /**
+     * Returns true if, and only if, the Flight Recorder has been initialized, which happens when
+     * the first recording is created. Until then, no events should be created.
+     */
+    static boolean recorderInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /** Begins timing the specified event, and returns it. */
+    static <T extends Event> T begin(T event) {
+        event.begin();
+        return event;
+    }
+
+    /** Returns the number of nonempty cells in the specified grid. */
+    static int clues(Grid grid) {
+        int clues = 0;
+        for (GridElements.Cell cell : GridElements.cells()) {
+            if (grid.digitAt(cell).isPresent()) {
+                ++clues;
+            }
+        }
+        return clues;
+    }
+
+}
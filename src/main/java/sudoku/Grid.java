@@ -7,10 +7,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import lombok.EqualsAndHashCode;
-import sudoku.GridElements.Box;
 import sudoku.GridElements.Cell;
-import sudoku.GridElements.Column;
-import sudoku.GridElements.Row;
 import sudoku.exceptions.GridOverwriteException;
 import sudoku.exceptions.GridParserException;
 
@@ -24,6 +21,15 @@ import sudoku.exceptions.GridParserException;
 @EqualsAndHashCode
 public class Grid {
 
+    // The value of each cell is one of these, so that setting a digit allocates nothing
+    private static final List<Optional<Digit>> PRESENT_DIGITS = new ArrayList<>();
+
+    static {
+        for (Digit d : Digit.values()) {
+            PRESENT_DIGITS.add(Optional.of(d));
+        }
+    }
+
     private final List<Optional<Digit>> data;
 
     /**
@@ -63,7 +69,7 @@ public class Grid {
         if (digitAt(cell).isPresent()) {
             throw new GridOverwriteException(cell);
         }
-        data.set(index(cell), Optional.of(d));
+        data.set(index(cell), PRESENT_DIGITS.get(d.ordinal()));
     }
 
     /**
@@ -110,14 +116,6 @@ public class Grid {
         return sb.toString();
     }
 
-    /**
-     * @throws IllegalArgumentException if the given character is not a (radix 10)
-     *                                  digit
-     */
-    private static Optional<Digit> optionalDigitFrom(char c) {
-        return c == '0' ? Optional.empty() : Optional.of(Digit.fromChar(c));
-    }
-
     /**
      * Returns a grid whose string representation (obtained from the
      * {@code Object.toString()} method) is the given string.
@@ -127,22 +125,82 @@ public class Grid {
      *                             digit
      */
     public static Grid fromString(String str) throws GridParserException {
+        if (!Events.recorderInitialized()) {
+            return parse(str);
+        }
+        Events.Parse event = Events.begin(new Events.Parse());
+        try {
+            Grid grid = parse(str);
+            event.valid = true;
+            return grid;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static Grid parse(String str) throws GridParserException {
+        ParseResult result = parse(str, false);
+        switch (result.getStatus()) {
+            case BAD_LENGTH:
+                throw new GridParserException("String of incorrect size: " + str.length());
+            case BAD_CHARACTER:
+                throw new GridParserException(
+                        "Not a digit: " + str.charAt(result.getPosition()));
+            default:
+                return result.getGrid().get();
+        }
+    }
+
+    /**
+     * Parses the given string as {@link #fromString(String)} does, and also checks that no clue
+     * appears twice in a row, column or box and that every empty cell has a candidate left. Never
+     * throws an exception: the returned result holds either the grid or the reason why the string
+     * does not represent a valid puzzle.
+     */
+    public static ParseResult tryParse(CharSequence str) {
+        return parse(str, true);
+    }
+
+    /**
+     * Parses the given string, keeping the digits seen in each row, column and box as bitmasks.
+     * 
+     * @param checkClues if true, also check for duplicate clues and empty cells without
+     *                   candidates
+     */
+    private static ParseResult parse(CharSequence str, boolean checkClues) {
         if (str.length() != 81) {
-            throw new GridParserException("String of incorrect size: " + str.length());
+            return ParseResult.invalid(ParseResult.Status.BAD_LENGTH, str.length());
         }
-        Grid grid = new Grid();
-        for (Cell cell : GridElements.cells()) {
-            try {
-                char c = str.charAt(index(cell));
-                Optional<Digit> d = optionalDigitFrom(c);
-                if (d.isPresent()) {
-                    grid.setDigit(cell, d.get());
+        int[] rows = new int[9];
+        int[] columns = new int[9];
+        int[] boxes = new int[9];
+        for (int i = 0; i < 81; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return ParseResult.invalid(ParseResult.Status.BAD_CHARACTER, i);
+            }
+            if (c != '0') {
+                int bit = 1 << (c - '1');
+                int box = 3 * (i / 27) + (i % 9) / 3;
+                if (checkClues && ((rows[i / 9] | columns[i % 9] | boxes[box]) & bit) != 0) {
+                    return ParseResult.invalid(ParseResult.Status.DUPLICATE_CLUE, i);
                 }
-            } catch (IllegalArgumentException e) {
-                throw new GridParserException(e.getMessage());
+                rows[i / 9] |= bit;
+                columns[i % 9] |= bit;
+                boxes[box] |= bit;
             }
         }
-        return grid;
+        Grid grid = new Grid();
+        for (int i = 0; i < 81; i++) {
+            char c = str.charAt(i);
+            if (c != '0') {
+                grid.data.set(i, PRESENT_DIGITS.get(c - '1'));
+            } else if (checkClues
+                    && (rows[i / 9] | columns[i % 9] | boxes[3 * (i / 27) + (i % 9) / 3]) == 0x1FF) {
+                return ParseResult.invalid(ParseResult.Status.INCONSISTENT, i);
+            }
+        }
+        return ParseResult.valid(grid);
     }
 
     /**
@@ -197,26 +255,69 @@ public class Grid {
      * determine whether this grid is solvable.
      */
     public final boolean isConsistent() {
-        for (Row row : GridElements.rows()) {
-            if (!isConsistent(row))
-                return false;
-        }
-        for (Column column : GridElements.columns()) {
-            if (!isConsistent(column))
+        return checkUnits(false);
+    }
+
+    /**
+     * Determines whether this Sudoku grid is solved.
+     */
+    public final boolean isSolved() {
+        return checkUnits(true);
+    }
+
+    /**
+     * Determines whether this grid is a solution of the specified puzzle, that is,
+     * whether this grid is solved and agrees with every nonempty cell of the
+     * puzzle.
+     */
+    public final boolean isSolutionOf(Grid puzzle) {
+        for (int i = 0; i < 81; i++) {
+            Optional<Digit> clue = puzzle.data.get(i);
+            if (clue.isPresent() && !clue.equals(data.get(i))) {
                 return false;
+            }
         }
-        for (Box box : GridElements.boxes()) {
-            if (!isConsistent(box))
-                return false;
+        return isSolved();
+    }
+
+    /**
+     * Checks all 27 rows, columns and boxes in a single pass, keeping the digits
+     * seen in each of them as a bitmask. Does not allocate.
+     * 
+     * @param requireFull if true, also require every cell to be nonempty
+     */
+    private boolean checkUnits(boolean requireFull) {
+        for (int unit = 0; unit < 9; unit++) {
+            int rowMask = 0;
+            int columnMask = 0;
+            int boxMask = 0;
+            int boxCorner = 27 * (unit / 3) + 3 * (unit % 3);
+            for (int k = 0; k < 9; k++) {
+                int rowBit = bit(9 * unit + k);
+                int columnBit = bit(9 * k + unit);
+                int boxBit = bit(boxCorner + 9 * (k / 3) + k % 3);
+                if (requireFull && (rowBit == 0 || columnBit == 0 || boxBit == 0)) {
+                    return false;
+                }
+                if ((rowMask & rowBit) != 0 || (columnMask & columnBit) != 0
+                        || (boxMask & boxBit) != 0) {
+                    return false;
+                }
+                rowMask |= rowBit;
+                columnMask |= columnBit;
+                boxMask |= boxBit;
+            }
         }
         return true;
     }
 
     /**
-     * Determines whether this Sudoku grid is solved.
+     * Returns the bit corresponding to the digit at the specified index, or zero if
+     * the cell at that index is blank.
      */
-    public final boolean isSolved() {
-        return !hasEmptyCell() && isConsistent();
+    private int bit(int index) {
+        Optional<Digit> d = data.get(index);
+        return d.isPresent() ? 1 << d.get().ordinal() : 0;
     }
 
 }
@@ -20,6 +20,8 @@ public class GridElements {
     private static final List<Row> rows = new ArrayList<>();
     private static final List<Column> columns = new ArrayList<>();
     private static final List<Box> boxes = new ArrayList<>();
+    private static final List<Iterable<Cell>> units = new ArrayList<>();
+    private static final List<List<Cell>> peers = new ArrayList<>();
 
     static {
         for (int i = 0; i < 9; i++) {
@@ -36,6 +38,19 @@ public class GridElements {
                 boxes.add(new Box(3 * i, 3 * j));
             }
         }
+        units.addAll(rows);
+        units.addAll(columns);
+        units.addAll(boxes);
+        for (Cell cell : cells) {
+            List<Cell> cellPeers = new ArrayList<>();
+            for (Cell other : cells) {
+                if (other != cell && (other.row == cell.row || other.column == cell.column
+                        || Box.of(other) == Box.of(cell))) {
+                    cellPeers.add(other);
+                }
+            }
+            peers.add(cellPeers);
+        }
     }
 
     @EqualsAndHashCode
@@ -210,6 +225,18 @@ public class GridElements {
         return boxes;
     }
 
+    /** Returns the 27 rows, columns and boxes of a grid, in this order. */
+    public static Iterable<Iterable<Cell>> units() {
+        return units;
+    }
+
+    /**
+     * Returns the 20 cells other than the specified cell that share a row, column or box with it.
+     */
+    public static Iterable<Cell> peers(Cell cell) {
+        return peers.get(Cell.index(cell.row, cell.column));
+    }
+
     /**
      * @throws IndexOutOfBoundsException
      */
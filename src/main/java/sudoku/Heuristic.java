@@ -0,0 +1,79 @@
+package sudoku;
+
+import java.util.List;
+
+/**
+ * A rule for choosing how the solver branches when no cell of a grid can be filled in without
+ * guessing. Besides choosing what to branch on, a heuristic chooses the order in which the
+ * alternatives are tried.
+ * 
+ * The static factories of this interface return the available heuristics. Their names, as
+ * returned by {@link #getName()}, are accepted by {@link #fromString(String)}.
+ */
+public interface Heuristic {
+
+    /** Returns the name under which this heuristic appears in the solver statistics. */
+    String getName();
+
+    /**
+     * Returns the alternatives the solver should branch on, in the order in which they should be
+     * tried. Exactly one of them holds in each solution of the specified grid. An empty list means
+     * that the grid has no solution.
+     * 
+     * @param grid a grid that has an empty cell, and whose empty cells all have a candidate
+     */
+    List<Placement> branch(AnnotatedGrid grid);
+
+    /**
+     * Branches on the candidates of an empty cell with the fewest candidates, trying them in
+     * increasing order. This is the default heuristic.
+     */
+    static Heuristic fewestCandidates() {
+        return Heuristics.FEWEST_CANDIDATES;
+    }
+
+    /**
+     * Branches on the candidates of an empty cell with the fewest candidates, breaking ties in
+     * favor of the cell with the most empty peers.
+     */
+    static Heuristic fewestCandidatesThenDegree() {
+        return Heuristics.FEWEST_CANDIDATES_THEN_DEGREE;
+    }
+
+    /**
+     * Branches on the candidates of an empty cell with the fewest candidates, trying first the
+     * candidates that appear among the candidates of the fewest empty peers.
+     */
+    static Heuristic leastConstrainingValue() {
+        return Heuristics.LEAST_CONSTRAINING_VALUE;
+    }
+
+    /**
+     * Branches either on the candidates of an empty cell, or on the possible positions of a digit
+     * inside a row, column or box, whichever has the fewest alternatives.
+     */
+    static Heuristic hiddenPosition() {
+        return Heuristics.HIDDEN_POSITION;
+    }
+
+    /**
+     * Branches on the candidates of an empty cell chosen at random among those with the fewest
+     * candidates, trying them in random order. The random choices are reproducible for a given
+     * seed, but the returned heuristic keeps its random state between solves, so a new instance
+     * should be used for each solve that must be reproduced.
+     */
+    static Heuristic randomized(long seed) {
+        return new Heuristics.Randomized(seed);
+    }
+
+    /**
+     * Returns the heuristic with the specified name. The name of a randomized heuristic is
+     * "random:" followed by its seed.
+     * 
+     * @throws IllegalArgumentException if there is no heuristic with the specified name
+     */
+    static Heuristic fromString(String name) {
+        return Heuristics.fromString(name);
+    }
+
+}
@@ -0,0 +1,237 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import sudoku.GridElements.Cell;
+
+/**
+ * Implementations of the heuristics returned by the static factories of {@link Heuristic}.
+ */
+final class Heuristics {
+
+    private static final Digit[] DIGITS = Digit.values();
+
+    private Heuristics() {}
+
+    static final Heuristic FEWEST_CANDIDATES = new CellHeuristic("fewest-candidates") {
+        @Override
+        Cell chooseCell(AnnotatedGrid grid) {
+            return Solver.cellWithFewestCandidates(grid);
+        }
+    };
+
+    static final Heuristic FEWEST_CANDIDATES_THEN_DEGREE =
+            new CellHeuristic("fewest-candidates-degree") {
+                @Override
+                Cell chooseCell(AnnotatedGrid grid) {
+                    Cell best = null;
+                    int bestSize = Integer.MAX_VALUE;
+                    int bestDegree = -1;
+                    for (Cell cell : grid.emptyCells(GridElements.cells())) {
+                        int size = grid.candidates(cell).size();
+                        if (size > bestSize) {
+                            continue;
+                        }
+                        int degree = emptyPeers(grid, cell);
+                        if (size < bestSize || degree > bestDegree) {
+                            best = cell;
+                            bestSize = size;
+                            bestDegree = degree;
+                        }
+                    }
+                    return best;
+                }
+            };
+
+    static final Heuristic LEAST_CONSTRAINING_VALUE = new CellHeuristic("least-constraining-value") {
+        @Override
+        Cell chooseCell(AnnotatedGrid grid) {
+            return Solver.cellWithFewestCandidates(grid);
+        }
+
+        @Override
+        void order(AnnotatedGrid grid, Cell cell, List<Digit> digits) {
+            digits.sort(Comparator.comparingInt(d -> peersWithCandidate(grid, cell, d)));
+        }
+    };
+
+    static final Heuristic HIDDEN_POSITION = new Heuristic() {
+        @Override
+        public String getName() {
+            return "hidden-position";
+        }
+
+        @Override
+        public List<Placement> branch(AnnotatedGrid grid) {
+            Cell cell = Solver.cellWithFewestCandidates(grid);
+            int fewest = grid.candidates(cell).size();
+            Iterable<Cell> bestUnit = null;
+            Digit bestDigit = null;
+            int[] positions = new int[9];
+            for (Iterable<Cell> unit : GridElements.units()) {
+                if (fewest <= 1) {
+                    break;
+                }
+                int placed = 0;
+                Arrays.fill(positions, 0);
+                for (Cell c : unit) {
+                    Optional<Digit> d = grid.digitAt(c);
+                    if (d.isPresent()) {
+                        placed |= 1 << d.get().ordinal();
+                    } else {
+                        for (Digit candidate : grid.candidates(c)) {
+                            ++positions[candidate.ordinal()];
+                        }
+                    }
+                }
+                for (int i = 0; i < 9; i++) {
+                    if ((placed & 1 << i) == 0 && positions[i] < fewest) {
+                        fewest = positions[i];
+                        bestUnit = unit;
+                        bestDigit = DIGITS[i];
+                    }
+                }
+            }
+            if (bestUnit == null) {
+                return FEWEST_CANDIDATES.branch(grid);
+            }
+            List<Placement> alternatives = new ArrayList<>(fewest);
+            for (Cell c : grid.emptyCells(bestUnit)) {
+                if (grid.candidates(c).contains(bestDigit)) {
+                    alternatives.add(Placement.of(c, bestDigit));
+                }
+            }
+            return alternatives;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    };
+
+    static final class Randomized extends CellHeuristic {
+
+        private final Random random;
+
+        Randomized(long seed) {
+            super("random:" + seed);
+            random = new Random(seed);
+        }
+
+        @Override
+        Cell chooseCell(AnnotatedGrid grid) {
+            // Reservoir sampling among the cells with the fewest candidates
+            Cell chosen = null;
+            int fewest = Integer.MAX_VALUE;
+            int ties = 0;
+            for (Cell cell : grid.emptyCells(GridElements.cells())) {
+                int size = grid.candidates(cell).size();
+                if (size < fewest) {
+                    chosen = cell;
+                    fewest = size;
+                    ties = 1;
+                } else if (size == fewest && random.nextInt(++ties) == 0) {
+                    chosen = cell;
+                }
+            }
+            return chosen;
+        }
+
+        @Override
+        void order(AnnotatedGrid grid, Cell cell, List<Digit> digits) {
+            Collections.shuffle(digits, random);
+        }
+
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no heuristic with the specified name
+     */
+    static Heuristic fromString(String name) {
+        for (Heuristic heuristic : Arrays.asList(FEWEST_CANDIDATES, FEWEST_CANDIDATES_THEN_DEGREE,
+                LEAST_CONSTRAINING_VALUE, HIDDEN_POSITION)) {
+            if (heuristic.getName().equals(name)) {
+                return heuristic;
+            }
+        }
+        if (name.startsWith("random:")) {
+            try {
+                return new Randomized(Long.parseLong(name.substring("random:".length())));
+            } catch (NumberFormatException e) {
+                // Fall through
+            }
+        }
+        throw new IllegalArgumentException("Unknown heuristic: " + name);
+    }
+
+    /**
+     * A heuristic that branches on the candidates of an empty cell.
+     */
+    private abstract static class CellHeuristic implements Heuristic {
+
+        private final String name;
+
+        CellHeuristic(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public final String getName() {
+            return name;
+        }
+
+        @Override
+        public final List<Placement> branch(AnnotatedGrid grid) {
+            Cell cell = chooseCell(grid);
+            List<Digit> digits = new ArrayList<>(grid.candidates(cell));
+            order(grid, cell, digits);
+            List<Placement> alternatives = new ArrayList<>(digits.size());
+            for (Digit d : digits) {
+                alternatives.add(Placement.of(cell, d));
+            }
+            return alternatives;
+        }
+
+        /** Returns the empty cell to branch on. */
+        abstract Cell chooseCell(AnnotatedGrid grid);
+
+        /**
+         * Sorts the candidates of the chosen cell in the order in which they should be tried.
+         * They are initially in increasing order, which this implementation keeps.
+         */
+        void order(AnnotatedGrid grid, Cell cell, List<Digit> digits) {}
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    private static int emptyPeers(AnnotatedGrid grid, Cell cell) {
+        int count = 0;
+        for (Cell peer : GridElements.peers(cell)) {
+            if (!grid.digitAt(peer).isPresent()) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static int peersWithCandidate(AnnotatedGrid grid, Cell cell, Digit d) {
+        int count = 0;
+        for (Cell peer : grid.emptyCells(GridElements.peers(cell))) {
+            if (grid.candidates(peer).contains(d)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,165 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only record of the outputs for the inputs that a batch run has completed, which lets
+ * an interrupted run be resumed.
+ * 
+ * Each record is a line "# input k h" followed by the output for input {@code k}, which always
+ * ends with a blank line. The hexadecimal number {@code h} is a CRC-32 checksum of the input, so
+ * that a run resumed on different or edited inputs is caught instead of replaying outputs that
+ * belong to other inputs. Records are appended to a buffer, which is written and synced to disk
+ * every few records. A record cut short by a crash is discarded when the journal is reopened.
+ */
+final class Journal implements Closeable {
+
+    private final Map<Integer, String> recorded;
+    private final Map<Integer, String> checksums;
+    private final FileOutputStream file;
+    private final Writer writer;
+    private final int flushInterval;
+    private int unflushed = 0;
+
+    private Journal(Map<Integer, String> recorded, Map<Integer, String> checksums,
+            FileOutputStream file, int flushInterval) {
+        this.recorded = recorded;
+        this.checksums = checksums;
+        this.file = file;
+        this.writer = new OutputStreamWriter(file, StandardCharsets.UTF_8);
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Opens the journal at the specified path. If {@code resume} is true, the complete records
+     * already in the journal are kept and new records are appended to them. Otherwise, the
+     * journal starts out empty.
+     * 
+     * @param flushInterval the number of records after which the journal is synced to disk
+     */
+    static Journal open(String path, boolean resume, int flushInterval) throws IOException {
+        Map<Integer, String> recorded = new HashMap<>();
+        Map<Integer, String> checksums = new HashMap<>();
+        File journalFile = new File(path);
+        if (resume && journalFile.exists()) {
+            // Rewrite the complete records, dropping any record cut short by a crash
+            File compacted = new File(path + ".tmp");
+            try (BufferedReader input = new BufferedReader(new FileReader(journalFile));
+                    Writer output = new OutputStreamWriter(new FileOutputStream(compacted),
+                            StandardCharsets.UTF_8)) {
+                readRecords(input, recorded, checksums);
+                for (Map.Entry<Integer, String> record : recorded.entrySet()) {
+                    output.write(format(record.getKey(), checksums.get(record.getKey()),
+                            record.getValue()));
+                }
+            }
+            Files.move(compacted.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return new Journal(recorded, checksums, new FileOutputStream(journalFile, resume),
+                flushInterval);
+    }
+
+    private static void readRecords(BufferedReader input, Map<Integer, String> recorded,
+            Map<Integer, String> checksums) throws IOException {
+        int inputIndex = -1;
+        String checksum = null;
+        StringBuilder output = null;
+        for (String line = input.readLine(); line != null; line = input.readLine()) {
+            if (output == null) {
+                String[] words = line.split(" ");
+                if (words.length != 4 || !line.startsWith("# input ")) {
+                    return;
+                }
+                try {
+                    inputIndex = Integer.parseInt(words[2]);
+                } catch (NumberFormatException e) {
+                    return;
+                }
+                checksum = words[3];
+                output = new StringBuilder();
+            } else if (line.startsWith("# ")) {
+                return;
+            } else {
+                output.append(line).append('\n');
+                if (line.isEmpty()) {
+                    recorded.put(inputIndex, output.toString());
+                    checksums.put(inputIndex, checksum);
+                    output = null;
+                }
+            }
+        }
+    }
+
+    private static String format(int inputIndex, String checksum, String output) {
+        return "# input " + inputIndex + " " + checksum + "\n" + output;
+    }
+
+    /** Returns the CRC-32 checksum of the specified input, in hexadecimal. */
+    private static String checksum(String input) {
+        CRC32 crc = new CRC32();
+        crc.update(input.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Returns the recorded output for the specified input, if there is one.
+     * 
+     * @param input the input with the specified index, as read by the run
+     * @throws IOException if the output was recorded for a different input
+     */
+    Optional<String> recorded(int inputIndex, String input) throws IOException {
+        String output = recorded.get(inputIndex);
+        if (output != null && !checksums.get(inputIndex).equals(checksum(input))) {
+            throw new IOException("Input " + inputIndex + " differs from the journaled one");
+        }
+        return Optional.ofNullable(output);
+    }
+
+    /**
+     * Appends the output for the specified input to this journal.
+     * 
+     * @param input the input with the specified index, as read by the run
+     * @param output the output for the input, ending with a blank line
+     */
+    void record(int inputIndex, String input, String output) throws IOException {
+        String checksum = checksum(input);
+        writer.write(format(inputIndex, checksum, output));
+        recorded.put(inputIndex, output);
+        checksums.put(inputIndex, checksum);
+        if (++unflushed >= flushInterval) {
+            sync();
+        }
+    }
+
+    /** Writes the buffered records and syncs them to disk. */
+    void sync() throws IOException {
+        writer.flush();
+        file.getChannel().force(false);
+        unflushed = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package sudoku;
+
+import java.util.Locale;
+import java.util.Optional;
+import lombok.Getter;
+
+/**
+ * The outcome of parsing and validating the string representation of a puzzle with
+ * {@link Grid#tryParse(CharSequence)}: either a grid, or the reason why the string does not
+ * represent a valid puzzle along with the position where the problem was found.
+ */
+public final class ParseResult {
+
+    /** Whether a string represents a valid puzzle, or else why not. */
+    public enum Status {
+
+        VALID,
+
+        /** The string does not have 81 characters. */
+        BAD_LENGTH,
+
+        /** The string has a character that is not a digit from '0' to '9'. */
+        BAD_CHARACTER,
+
+        /** A digit appears more than once in a row, column or box. */
+        DUPLICATE_CLUE,
+
+        /**
+         * Every digit appears among the clues in the row, column and box of some empty cell, so the
+         * puzzle has no solution, although no clue appears twice.
+         */
+        INCONSISTENT;
+
+        /** Returns the name of this status in lower case, with hyphens instead of underscores. */
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+    }
+
+    @Getter
+    private final Status status;
+
+    /**
+     * The length of the string if it has a bad length, or else the index of the character or cell
+     * where the problem was found, or -1 if the string is valid
+     */
+    @Getter
+    private final int position;
+
+    private final Grid grid;
+
+    private ParseResult(Status status, int position, Grid grid) {
+        this.status = status;
+        this.position = position;
+        this.grid = grid;
+    }
+
+    static ParseResult valid(Grid grid) {
+        return new ParseResult(Status.VALID, -1, grid);
+    }
+
+    static ParseResult invalid(Status status, int position) {
+        return new ParseResult(status, position, null);
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /** Returns the parsed grid, if the string is valid. */
+    public Optional<Grid> getGrid() {
+        return Optional.ofNullable(grid);
+    }
+
+    /**
+     * Returns a short description of the problem, such as "bad-character at 17", or "valid".
+     */
+    @Override
+    public String toString() {
+        switch (status) {
+            case VALID:
+                return status.toString();
+            case BAD_LENGTH:
+                return status + " " + position;
+            default:
+                return status + " at " + position;
+        }
+    }
+
+}
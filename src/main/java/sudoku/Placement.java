@@ -0,0 +1,31 @@
+package sudoku;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import sudoku.GridElements.Cell;
+
+/** The placement of a digit in a cell of a Sudoku grid. */
+@EqualsAndHashCode
+public final class Placement {
+
+    @Getter
+    private final Cell cell;
+
+    @Getter
+    private final Digit digit;
+
+    private Placement(Cell cell, Digit digit) {
+        this.cell = cell;
+        this.digit = digit;
+    }
+
+    public static Placement of(Cell cell, Digit digit) {
+        return new Placement(cell, digit);
+    }
+
+    @Override
+    public String toString() {
+        return cell + " = " + digit.toInt();
+    }
+
+}
@@ -0,0 +1,170 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A solver that races several differently configured searches on the same grid, in parallel,
+ * and returns the result of the first one to finish.
+ * 
+ * The running time of a search on a given grid varies widely with the engine and heuristic, so
+ * racing several configurations cuts the tail latency when there are idle cores. Once a search
+ * finishes, the other ones are cancelled through a {@link Cancellation} shared by the searches of
+ * the same solve, so they stop at their next node. Searches outside a portfolio are not affected.
+ * 
+ * A portfolio owns a pool of threads, one per configuration, which is shut down when the
+ * portfolio is closed. It can run several solves concurrently, although they then compete for
+ * the same threads.
+ */
+public final class Portfolio implements AutoCloseable {
+
+    /** The configuration of a search: an engine and a heuristic. */
+    @EqualsAndHashCode
+    public static final class Configuration {
+
+        @Getter
+        private final Engine engine;
+
+        // Randomized heuristics keep their state, so each search gets a new instance
+        @Getter
+        private final String heuristic;
+
+        private Configuration(Engine engine, String heuristic) {
+            this.engine = engine;
+            this.heuristic = heuristic;
+        }
+
+        /**
+         * @throws IllegalArgumentException if there is no heuristic with the specified name
+         */
+        public static Configuration of(Engine engine, String heuristic) {
+            Heuristic.fromString(heuristic);
+            return new Configuration(engine, heuristic);
+        }
+
+        @Override
+        public String toString() {
+            return engine + "/" + heuristic;
+        }
+
+    }
+
+    /** The result of the first search to finish. */
+    public static final class Result {
+
+        @Getter
+        private final Optional<Grid> solution;
+
+        @Getter
+        private final Configuration winner;
+
+        /** The work done by the winning search */
+        @Getter
+        private final Statistics statistics;
+
+        private Result(Optional<Grid> solution, Configuration winner, Statistics statistics) {
+            this.solution = solution;
+            this.winner = winner;
+            this.statistics = statistics;
+        }
+
+    }
+
+    @Getter
+    private final List<Configuration> configurations;
+
+    private final ExecutorService executor;
+
+    // The cancellations of the solves in progress, which are cancelled when the portfolio closes
+    private final Set<Cancellation> inProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a portfolio that races searches with the specified configurations.
+     * 
+     * @throws IllegalArgumentException if there are no configurations
+     */
+    public Portfolio(List<Configuration> configurations) {
+        if (configurations.isEmpty()) {
+            throw new IllegalArgumentException("No configurations");
+        }
+        this.configurations = Collections.unmodifiableList(new ArrayList<>(configurations));
+        this.executor = Executors.newFixedThreadPool(configurations.size(), runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the default configurations for a portfolio of the specified size. The first ones
+     * combine each engine with the deterministic heuristics that do best on the corpus of hard
+     * puzzles; the rest use the randomized heuristic with different seeds.
+     * 
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public static List<Configuration> defaultConfigurations(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Bad portfolio size: " + size);
+        }
+        List<Configuration> configurations = new ArrayList<>();
+        configurations.add(Configuration.of(Engine.RECURSIVE, "hidden-position"));
+        configurations.add(Configuration.of(Engine.BITMASK, "fewest-candidates"));
+        configurations.add(Configuration.of(Engine.STACK, "fewest-candidates-degree"));
+        configurations.add(Configuration.of(Engine.STACK, "hidden-position"));
+        for (int seed = 1; configurations.size() < size; seed++) {
+            Engine engine = seed % 2 == 0 ? Engine.STACK : Engine.RECURSIVE;
+            configurations.add(Configuration.of(engine, "random:" + seed));
+        }
+        return configurations.subList(0, size);
+    }
+
+    /**
+     * Returns the result of the first search to finish on the specified grid, after cancelling
+     * the other ones.
+     * 
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Result solve(Grid grid) throws InterruptedException {
+        Cancellation cancellation = new Cancellation();
+        List<Callable<Result>> searches = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            searches.add(() -> {
+                Statistics statistics = new Statistics();
+                Optional<Grid> solution = configuration.getEngine().solve(grid,
+                        Heuristic.fromString(configuration.getHeuristic()), statistics,
+                        cancellation);
+                return new Result(solution, configuration, statistics);
+            });
+        }
+        inProgress.add(cancellation);
+        try {
+            return executor.invokeAny(searches);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Every search failed", e.getCause());
+        } finally {
+            // Stops the searches still running, whether one finished or the wait was interrupted
+            cancellation.cancel();
+            inProgress.remove(cancellation);
+        }
+    }
+
+    /** Shuts down the threads of this portfolio, cancelling any searches in progress. */
+    @Override
+    public void close() {
+        for (Cancellation cancellation : inProgress) {
+            cancellation.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,75 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import sudoku.GridElements.Cell;
+
+/**
+ * Removes clues from puzzles while keeping their solutions unique.
+ */
+public class Reducer {
+
+    /**
+     * Returns a minimal puzzle obtained by removing clues from the specified puzzle, which must have
+     * a unique solution. The returned puzzle has the same unique solution, and removing any of its
+     * clues would give a puzzle with several solutions. It is the puzzle obtained by trying to
+     * remove the clues one at a time, in the order of the cells.
+     * 
+     * A clue can be removed if, and only if, the puzzle without it has no solution other than the
+     * known one, which is checked by searching for a solution in which the cell of the clue holds
+     * a different digit. Every clue is first checked against the given puzzle in parallel, in the
+     * common fork/join pool. The clues found to be necessary stay necessary as other clues are
+     * removed, so they are kept. The others are removed together if the solution stays unique
+     * without all of them. Otherwise they are checked again one at a time against the puzzle as it
+     * shrinks, so each clue is checked at most twice. Each check starts from the candidates of the
+     * current puzzle, as given by {@link AnnotatedGrid#withBlank(Cell)}, instead of rebuilding them.
+     * 
+     * @throws IllegalArgumentException if the puzzle does not have a unique solution
+     */
+    public static Grid minimize(Grid puzzle) {
+        List<Grid> solutions = Solver.solutions(puzzle).limit(2).collect(Collectors.toList());
+        if (solutions.size() != 1) {
+            throw new IllegalArgumentException("The puzzle does not have a unique solution");
+        }
+        Grid solution = solutions.get(0);
+        AnnotatedGrid given = AnnotatedGrid.fromOrdinaryGrid(puzzle);
+        List<Cell> clues = new ArrayList<>();
+        puzzle.nonEmptyCells().forEach(clues::add);
+        List<Cell> removable = clues.parallelStream()
+                .filter(cell -> isRemovable(given, solution, cell))
+                .collect(Collectors.toList());
+
+        AnnotatedGrid withoutAll = given;
+        for (Cell cell : removable) {
+            withoutAll = withoutAll.withBlank(cell);
+        }
+        if (Solver.countSolutions(withoutAll, 2) == 1) {
+            return new Grid(withoutAll);
+        }
+        AnnotatedGrid reduced = given;
+        for (int i = 0; i < removable.size(); i++) {
+            Cell cell = removable.get(i);
+            // The first one was checked against the same puzzle
+            if (i == 0 || isRemovable(reduced, solution, cell)) {
+                reduced = reduced.withBlank(cell);
+            }
+        }
+        return new Grid(reduced);
+    }
+
+    /**
+     * Determines whether the solution of the specified puzzle, whose candidates are those built by
+     * {@link AnnotatedGrid#fromOrdinaryGrid(Grid)}, is still unique after removing the clue in the
+     * specified cell. The puzzle is left as it is.
+     */
+    private static boolean isRemovable(AnnotatedGrid puzzle, Grid solution, Cell cell) {
+        AnnotatedGrid grid = puzzle.withBlank(cell);
+        grid.ruleOut(solution.digitAt(cell).get(), cell);
+        Optional<Grid> other =
+                Solver.solveAnnotated(grid, Heuristic.hiddenPosition(), new Statistics());
+        return !other.isPresent();
+    }
+
+}
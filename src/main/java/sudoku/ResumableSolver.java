@@ -0,0 +1,79 @@
+package sudoku;
+
+import java.util.Optional;
+import lombok.Getter;
+import sudoku.exceptions.SolverInterruptedException;
+
+/**
+ * A search for a solution of a grid that runs in slices of a bounded number of nodes, so that a
+ * thread can interleave many searches. Between slices, the search is held in an explicit stack of
+ * unexplored nodes, as in {@link Engine#STACK}, and takes no thread.
+ * 
+ * A search is not safe for use by several threads at once, but it may be suspended on one thread
+ * and resumed on another, as long as the hand-off is properly synchronized, as it is when the
+ * search is passed through an executor or a concurrent queue.
+ */
+public final class ResumableSolver {
+
+    /** The progress of a search. */
+    public enum State {
+
+        /** The search has nodes left to expand */
+        RUNNING,
+
+        /** The search found a solution */
+        SOLVED,
+
+        /** The search ran out of nodes without finding a solution */
+        UNSOLVABLE
+
+    }
+
+    private final SolutionSpliterator search;
+
+    @Getter
+    private State state = State.RUNNING;
+
+    /** The solution, once the search has found it */
+    @Getter
+    private Optional<Grid> solution = Optional.empty();
+
+    /** The work done by the search so far */
+    @Getter
+    private final Statistics statistics = new Statistics();
+
+    /** Creates a search of the specified grid, branching as directed by the heuristic. */
+    public ResumableSolver(Grid grid, Heuristic heuristic) {
+        this.search = new SolutionSpliterator(AnnotatedGrid.fromOrdinaryGrid(grid), heuristic,
+                statistics);
+    }
+
+    /**
+     * Advances the search by at most the specified number of nodes, stopping early if it finishes,
+     * and returns its state. Once the search has finished, this returns at once.
+     * 
+     * @throws IllegalArgumentException if the number of nodes is not positive
+     * @throws SolverInterruptedException if the current thread is interrupted, which is checked
+     *                                    before each node, in which case the search can still be
+     *                                    resumed
+     */
+    public State step(long maxNodes) {
+        if (maxNodes <= 0) {
+            throw new IllegalArgumentException("Bad number of nodes: " + maxNodes);
+        }
+        for (long i = 0; i < maxNodes && state == State.RUNNING; i++) {
+            if (!search.hasUnexploredNodes()) {
+                state = State.UNSOLVABLE;
+            } else if (Thread.currentThread().isInterrupted()) {
+                throw new SolverInterruptedException();
+            } else {
+                solution = search.expandNext();
+                if (solution.isPresent()) {
+                    state = State.SOLVED;
+                }
+            }
+        }
+        return state;
+    }
+
+}
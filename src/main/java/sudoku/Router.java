@@ -0,0 +1,402 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import lombok.Getter;
+import sudoku.Portfolio.Configuration;
+
+/**
+ * A solver that sends each grid to the engine and heuristic expected to solve it fastest, as
+ * chosen by a routing table from a few features of the grid.
+ * 
+ * The features are computed before any search, with the bitmasks of a {@link BitmaskSolver}: the
+ * number of clues, the number of empty cells with each number of candidates, the number of cells
+ * that naked singles fill in, and the skew between the fullest and emptiest row, column or box.
+ * They sort the grid into one of a few buckets, which the routing table maps to configurations. A
+ * grid whose bucket is not in the table goes to a default configuration. When that configuration
+ * uses {@link Engine#BITMASK}, its search carries on from the naked singles placed for the
+ * features.
+ * 
+ * A routing table can be learned by timing every configuration on a sample of grids, as by
+ * {@link #learn(List, List, int)}, and saved to a file in the format of {@link Properties}, with
+ * one line "bucket=engine/heuristic" per bucket and a line "default=engine/heuristic". Routers
+ * are immutable and can be shared by threads.
+ */
+public final class Router {
+
+    /** The key of the default configuration in a routing table file */
+    public static final String DEFAULT_KEY = "default";
+
+    /** The bucket of grids that naked singles solve, or show to have no solution */
+    public static final String TRIVIAL = "trivial";
+
+    // The numbers of cells left empty by naked singles that bound the first two open bands
+    private static final int[] OPEN_BANDS = {40, 56};
+
+    // The difference between the numbers of clues of the fullest and emptiest units at which
+    // the clues count as unevenly spread
+    private static final int SKEWED = 6;
+
+    private static final List<String> BUCKETS = bucketNames();
+
+    // The number of grids each configuration solves before it is timed by learn
+    private static final int WARM_UP_GRIDS = 10;
+
+    /** The configuration used when no routing table is given */
+    private static final Configuration FALLBACK =
+            Configuration.of(Engine.BITMASK, Heuristic.fewestCandidates().getName());
+
+    /** The features of a grid that select its bucket. */
+    public static final class Features {
+
+        /** The number of nonempty cells */
+        @Getter
+        private final int clues;
+
+        private final int[] candidateCounts;
+
+        /**
+         * The number of empty cells that are filled in by repeatedly placing the only candidate
+         * of a cell, until no cell has a single candidate
+         */
+        @Getter
+        private final int singles;
+
+        /** Whether placing naked singles left an empty cell without candidates */
+        @Getter
+        private final boolean contradiction;
+
+        /** The number of clues of the fullest unit minus that of the emptiest one */
+        @Getter
+        private final int fillSkew;
+
+        private Features(int clues, int[] candidateCounts, int singles, boolean contradiction,
+                int fillSkew) {
+            this.clues = clues;
+            this.candidateCounts = candidateCounts;
+            this.singles = singles;
+            this.contradiction = contradiction;
+            this.fillSkew = fillSkew;
+        }
+
+        /** Computes the features of the specified grid. */
+        public static Features of(Grid grid) {
+            return of(new BitmaskSolver(), grid);
+        }
+
+        /**
+         * Computes the features of the specified grid with the specified solver, which is left
+         * holding the clues of the grid and the naked singles, unless there is a contradiction.
+         * The search can then carry on from there with {@link BitmaskSolver#solvePlaced}.
+         */
+        static Features of(BitmaskSolver solver, Grid grid) {
+            boolean consistent = solver.placeClues(grid);
+            int[] candidateCounts = new int[10];
+            for (int i = 0; i < solver.getEmptyCount(); i++) {
+                ++candidateCounts[Integer.bitCount(solver.candidates(solver.emptyCell(i)))];
+            }
+            int minFill = 9;
+            int maxFill = 0;
+            for (int unit = 0; unit < Units.BASIC_UNITS; unit++) {
+                int fill = solver.filledCells(unit);
+                minFill = Math.min(minFill, fill);
+                maxFill = Math.max(maxFill, fill);
+            }
+            int clues = 81 - solver.getEmptyCount();
+            int singles = consistent ? solver.placeNakedSingles() : -1;
+            return new Features(clues, candidateCounts, Math.max(singles, 0), singles < 0,
+                    maxFill - minFill);
+        }
+
+        /**
+         * Returns the number of empty cells with the specified number of candidates.
+         * 
+         * @throws IndexOutOfBoundsException if the number is not between 0 and 9
+         */
+        public int cellsWithCandidates(int count) {
+            return candidateCounts[count];
+        }
+
+        /** Returns the number of cells left empty once the naked singles are filled in. */
+        public int getOpenCells() {
+            return 81 - clues - singles;
+        }
+
+        /**
+         * Returns the bucket of the grid: {@value Router#TRIVIAL} if naked singles fill it in or
+         * leave a cell without candidates, and otherwise a name such as "open2.skewed.tight". The
+         * number after "open" is 1, 2 or 3 as the cells left empty by naked singles are at most
+         * 40, at most 56 or more. The clues are "skewed" if the fullest unit has at least 6 more
+         * of them than the emptiest one, and "even" otherwise. The candidates are "tight" if at
+         * least a quarter of the empty cells have two of them, and "loose" otherwise.
+         */
+        public String bucket() {
+            if (contradiction || getOpenCells() == 0) {
+                return TRIVIAL;
+            }
+            int band = 1;
+            while (band <= OPEN_BANDS.length && getOpenCells() > OPEN_BANDS[band - 1]) {
+                ++band;
+            }
+            boolean tight = 4 * candidateCounts[2] >= 81 - clues;
+            return "open" + band + (fillSkew >= SKEWED ? ".skewed" : ".even")
+                    + (tight ? ".tight" : ".loose");
+        }
+
+        @Override
+        public String toString() {
+            return clues + " clues, candidates " + Arrays.toString(candidateCounts) + ", "
+                    + singles + " singles" + (contradiction ? " (contradiction)" : "")
+                    + ", fill skew " + fillSkew;
+        }
+
+    }
+
+    private final Map<String, Configuration> table;
+
+    /** The configuration for the buckets that are not in the table */
+    @Getter
+    private final Configuration fallback;
+
+    /**
+     * Creates a router with the specified routing table, from buckets to configurations, and the
+     * specified configuration for the buckets that are not in it.
+     * 
+     * @throws IllegalArgumentException if a key of the table is not a bucket
+     */
+    public Router(Map<String, Configuration> table, Configuration fallback) {
+        for (String bucket : table.keySet()) {
+            if (!BUCKETS.contains(bucket)) {
+                throw new IllegalArgumentException("Unknown bucket: " + bucket);
+            }
+        }
+        this.table = Collections.unmodifiableMap(new TreeMap<>(table));
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns a router that sends every grid to the {@link Engine#BITMASK} engine, which is the
+     * fastest on most grids.
+     */
+    public static Router fixed() {
+        return new Router(Collections.<String, Configuration>emptyMap(), FALLBACK);
+    }
+
+    /** Returns the names of all buckets, with {@value #TRIVIAL} first. */
+    public static List<String> buckets() {
+        return BUCKETS;
+    }
+
+    private static List<String> bucketNames() {
+        List<String> buckets = new ArrayList<>();
+        buckets.add(TRIVIAL);
+        for (int band = 1; band <= OPEN_BANDS.length + 1; band++) {
+            for (String skew : new String[] {"even", "skewed"}) {
+                for (String spread : new String[] {"loose", "tight"}) {
+                    buckets.add("open" + band + "." + skew + "." + spread);
+                }
+            }
+        }
+        return Collections.unmodifiableList(buckets);
+    }
+
+    /** Returns the routing table, sorted by the names of the buckets. */
+    public Map<String, Configuration> getTable() {
+        return table;
+    }
+
+    /** Returns the configuration for the specified bucket. */
+    public Configuration route(String bucket) {
+        Configuration configuration = table.get(bucket);
+        return configuration == null ? fallback : configuration;
+    }
+
+    /** Returns the configuration for the grid with the specified features. */
+    public Configuration route(Features features) {
+        return route(features.bucket());
+    }
+
+    /**
+     * Returns a solution to the given grid, if one exists, found with the configuration for its
+     * bucket. Records the work done in the specified statistics.
+     */
+    public Optional<Grid> solve(Grid grid, Statistics statistics) {
+        if (table.isEmpty()) {
+            // Every grid goes to the same configuration, so the features are not needed
+            return fallback.getEngine().solve(grid, Heuristic.fromString(fallback.getHeuristic()),
+                    statistics);
+        }
+        BitmaskSolver solver = new BitmaskSolver();
+        Features features = Features.of(solver, grid);
+        Configuration configuration = route(features);
+        if (features.isContradiction()) {
+            statistics.setHeuristic(configuration.getHeuristic());
+            statistics.countNodes(1);
+            return Optional.empty();
+        }
+        if (configuration.getEngine() == Engine.BITMASK) {
+            // Carries on from the naked singles placed while computing the features
+            statistics.setHeuristic(Heuristic.fewestCandidates().getName());
+            return solver.solvePlaced(statistics);
+        }
+        // Randomized heuristics keep their state, so each solve gets a new instance
+        return configuration.getEngine().solve(grid,
+                Heuristic.fromString(configuration.getHeuristic()), statistics);
+    }
+
+    /**
+     * Returns the configurations a routing table is usually learned from: each engine with each
+     * deterministic heuristic, except {@link Engine#BITMASK}, which ignores the heuristic.
+     */
+    public static List<Configuration> learnableConfigurations() {
+        List<Configuration> configurations = new ArrayList<>();
+        for (Engine engine : Engine.values()) {
+            if (engine == Engine.BITMASK) {
+                configurations.add(FALLBACK);
+                continue;
+            }
+            for (Heuristic heuristic : Arrays.asList(Heuristic.fewestCandidates(),
+                    Heuristic.fewestCandidatesThenDegree(), Heuristic.leastConstrainingValue(),
+                    Heuristic.hiddenPosition())) {
+                configurations.add(Configuration.of(engine, heuristic.getName()));
+            }
+        }
+        return configurations;
+    }
+
+    /**
+     * Learns a routing table by solving each of the specified grids with each of the specified
+     * configurations, taking the shortest of the specified number of runs of each. Each bucket
+     * met is routed to the configuration with the least total time on its grids, and the
+     * configuration with the least total time on all grids becomes the default.
+     * 
+     * Each configuration first solves up to {@value #WARM_UP_GRIDS} of the grids without being
+     * timed, so that the code it runs is compiled before any of it is timed. The configuration
+     * that runs first then changes from one grid to the next.
+     * 
+     * @throws IllegalArgumentException if there are no grids or configurations, or the number of
+     *                                  runs is not positive
+     */
+    public static Router learn(List<Grid> grids, List<Configuration> configurations, int runs) {
+        if (grids.isEmpty() || configurations.isEmpty() || runs <= 0) {
+            throw new IllegalArgumentException("Nothing to learn from: " + grids.size()
+                    + " grids, " + configurations.size() + " configurations, " + runs + " runs");
+        }
+        for (Configuration configuration : configurations) {
+            for (Grid grid : grids.subList(0, Math.min(WARM_UP_GRIDS, grids.size()))) {
+                time(grid, configuration);
+            }
+        }
+        Map<String, long[]> bucketNanos = new HashMap<>();
+        long[] totalNanos = new long[configurations.size()];
+        for (int g = 0; g < grids.size(); g++) {
+            Grid grid = grids.get(g);
+            String bucket = Features.of(grid).bucket();
+            long[] nanos = bucketNanos.computeIfAbsent(bucket, b -> new long[totalNanos.length]);
+            for (int k = 0; k < configurations.size(); k++) {
+                int i = (g + k) % configurations.size();
+                long shortest = time(grid, configurations.get(i));
+                for (int run = 1; run < runs; run++) {
+                    shortest = Math.min(shortest, time(grid, configurations.get(i)));
+                }
+                nanos[i] += shortest;
+                totalNanos[i] += shortest;
+            }
+        }
+        Map<String, Configuration> table = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : bucketNanos.entrySet()) {
+            table.put(entry.getKey(), configurations.get(fastest(entry.getValue())));
+        }
+        return new Router(table, configurations.get(fastest(totalNanos)));
+    }
+
+    private static long time(Grid grid, Configuration configuration) {
+        Heuristic heuristic = Heuristic.fromString(configuration.getHeuristic());
+        long start = System.nanoTime();
+        configuration.getEngine().solve(grid, heuristic, new Statistics());
+        return System.nanoTime() - start;
+    }
+
+    /** Returns the index of the smallest of the specified times, the first one on ties. */
+    private static int fastest(long[] nanos) {
+        int fastest = 0;
+        for (int i = 1; i < nanos.length; i++) {
+            if (nanos[i] < nanos[fastest]) {
+                fastest = i;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Reads the routing table in the file at the specified path. A file without a default
+     * configuration routes the buckets that are not in it as {@link #fixed()} does.
+     * 
+     * @throws IOException if the file cannot be read, or holds an unknown bucket or a malformed
+     *                     configuration
+     */
+    public static Router load(String path) throws IOException {
+        try (Reader reader = new FileReader(path)) {
+            return read(reader, path);
+        }
+    }
+
+    static Router read(Reader reader, String name) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        Map<String, Configuration> table = new HashMap<>();
+        Configuration fallback = FALLBACK;
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            int slash = value.indexOf('/');
+            try {
+                if (slash < 0) {
+                    throw new IllegalArgumentException("Missing heuristic: " + value);
+                }
+                Configuration configuration = Configuration.of(
+                        Engine.fromString(value.substring(0, slash)), value.substring(slash + 1));
+                if (key.equals(DEFAULT_KEY)) {
+                    fallback = configuration;
+                } else if (BUCKETS.contains(key)) {
+                    table.put(key, configuration);
+                } else {
+                    throw new IllegalArgumentException("Unknown bucket: " + key);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed routing table " + name + ": " + e.getMessage());
+            }
+        }
+        return new Router(table, fallback);
+    }
+
+    /** Writes the routing table of this router to a file at the specified path. */
+    public void save(String path) throws IOException {
+        try (Writer writer = new FileWriter(path)) {
+            write(writer);
+        }
+    }
+
+    void write(Writer writer) throws IOException {
+        writer.write("# Routing table for sudoku.Router: bucket=engine/heuristic\n");
+        writer.write(DEFAULT_KEY + "=" + fallback + "\n");
+        for (String bucket : BUCKETS) {
+            if (table.containsKey(bucket)) {
+                writer.write(bucket + "=" + table.get(bucket) + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+}
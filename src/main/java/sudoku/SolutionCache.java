@@ -0,0 +1,348 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import sudoku.GridElements.Cell;
+
+/**
+ * A persistent cache of the solutions of puzzles, which lets batch runs skip the puzzles solved by
+ * earlier runs. The cache is an open-addressing hash table with linear probing, stored in a file
+ * that is mapped into memory.
+ * 
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, holding a magic number, the number
+ * of records and the number of them in use. Each record takes {@value #RECORD_SIZE} bytes: a
+ * status byte telling whether the record is empty, holds a solution or marks the puzzle as
+ * unsolvable, the puzzle and its solution with their digits packed two to a byte, and a CRC-32
+ * checksum of the rest of the record. Records are never removed, but a record whose checksum does
+ * not match is taken to be missing, and its place is reused by the next entry that probes it.
+ * Once three quarters of the records are in use, new entries are dropped. The number of records
+ * in use is counted again whenever the cache is opened, since the count in the header may be
+ * stale after a crash.
+ * 
+ * Lookups do not lock, so any number of threads can look up puzzles while another thread adds
+ * entries. A record is written before its status byte, and its checksum is checked on every
+ * lookup, so a lookup never returns a partly written record, even one cut short by a crash or
+ * being written by another process. Only the process that adds entries holds a lock on the file:
+ * the first process to open the cache takes an exclusive lock, and any other process, or one
+ * that may not write to the file, opens it for reading only, without a lock, and drops the
+ * entries it would add. A reader that opens the file before its header is written sees an empty
+ * cache, rather than failing. For a puzzle with several
+ * solutions, the cached solution is the one found by the run that added it, which may differ from
+ * the one the current heuristic would find.
+ */
+final class SolutionCache implements Closeable {
+
+    private static final long MAGIC = 0x5355444F4B554331L; // "SUDOKUC1"
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 88;
+    private static final int PACKED_SIZE = 41;
+
+    private static final byte EMPTY = 0;
+    private static final byte SOLVED = 1;
+    private static final byte UNSOLVABLE = 2;
+
+    private final FileChannel channel;
+    // The exclusive lock of a writable cache, or null for a read-only one
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int size;
+
+    private SolutionCache(FileChannel channel, FileLock lock, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.lock = lock;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(8);
+        for (int record = 0; record < capacity; record++) {
+            if (buffer.get(offset(record)) != EMPTY) {
+                size++;
+            }
+        }
+        if (lock != null) {
+            buffer.putInt(12, size);
+        }
+    }
+
+    /** Creates a read-only cache without records, for a file that is not ready to be read. */
+    private SolutionCache() {
+        this.channel = null;
+        this.lock = null;
+        this.buffer = null;
+        this.capacity = 0;
+    }
+
+    /**
+     * Opens the cache at the specified path, creating it with room for the specified number of
+     * records if the file does not exist. The capacity of an existing cache is kept. If another
+     * process, or another instance in this process, already has the cache open for adding
+     * entries, or this process may not write to the file, it is opened read-only. If the file is
+     * then still being created by the process adding entries, the cache is empty.
+     * 
+     * @throws IOException if the file is not a solution cache
+     * @throws IllegalArgumentException if the capacity is not positive, or too large for the file
+     *                                  to be mapped into memory
+     */
+    static SolutionCache open(String path, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IllegalArgumentException("Bad cache capacity: " + capacity);
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        } catch (AccessDeniedException e) {
+            return openReadOnly(path);
+        }
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                channel.close();
+                return openReadOnly(path);
+            }
+            MappedByteBuffer buffer;
+            if (channel.size() == 0) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_SIZE + (long) capacity * RECORD_SIZE);
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, capacity);
+                buffer.putInt(12, 0);
+            } else {
+                buffer = map(channel, FileChannel.MapMode.READ_WRITE, path);
+            }
+            return new SolutionCache(channel, lock, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the cache at the specified path without a lock, for lookups only. Returns an empty
+     * cache if the file is shorter than a header, or its header is not written yet, as when the
+     * process that adds entries has just created it.
+     */
+    private static SolutionCache openReadOnly(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                channel.close();
+                return new SolutionCache();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (buffer.getLong(0) == 0) {
+                channel.close();
+                return new SolutionCache();
+            }
+            return new SolutionCache(channel, null,
+                    map(channel, FileChannel.MapMode.READ_ONLY, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Maps the whole of an existing cache file, checking its header. */
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode,
+            String path) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a solution cache: " + path);
+        }
+        MappedByteBuffer buffer = channel.map(mode, 0, channel.size());
+        long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != records
+                || (channel.size() - HEADER_SIZE) % RECORD_SIZE != 0) {
+            throw new IOException("Not a solution cache: " + path);
+        }
+        return buffer;
+    }
+
+    /** Returns the number of records in the cache. */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /** Determines whether entries added to this cache are dropped. */
+    boolean isReadOnly() {
+        return lock == null;
+    }
+
+    /** Returns the number of records in use. */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the puzzle with the specified string representation, in the format of
+     * {@link Grid#toString()}. Returns an empty optional if the puzzle is not in the cache, or
+     * else its cached outcome, which is itself empty if the puzzle has no solution.
+     */
+    Optional<Optional<Grid>> lookup(String puzzle) {
+        if (capacity == 0) {
+            return Optional.empty();
+        }
+        byte[] key = pack(puzzle);
+        int record = find(key);
+        if (record < 0) {
+            return Optional.empty();
+        }
+        // Checked again, since another thread may have written the record meanwhile
+        int offset = offset(record);
+        byte status = buffer.get(offset);
+        if (status == EMPTY || !holds(key, status, offset)) {
+            return Optional.empty();
+        }
+        if (status == UNSOLVABLE) {
+            return Optional.of(Optional.<Grid>empty());
+        }
+        Digit[] digits = Digit.values();
+        Grid solution = new Grid();
+        for (Cell cell : GridElements.cells()) {
+            int index = 9 * cell.getRow() + cell.getColumn();
+            int packed = buffer.get(offset + 1 + PACKED_SIZE + index / 2);
+            int digit = index % 2 == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+            solution.setDigit(cell, digits[digit - 1]);
+        }
+        return Optional.of(Optional.of(solution));
+    }
+
+    /**
+     * Adds the outcome of solving the puzzle with the specified string representation, in the
+     * format of {@link Grid#toString()}. Returns false if the cache is full or read-only.
+     */
+    synchronized boolean add(String puzzle, Optional<Grid> solution) {
+        if (isReadOnly() || capacity == 0) {
+            return false;
+        }
+        byte[] key = pack(puzzle);
+        int record = find(key);
+        if (record < 0) {
+            return false;
+        }
+        int offset = offset(record);
+        byte previous = buffer.get(offset);
+        if (previous != EMPTY && holds(key, previous, offset)) {
+            return true;
+        }
+        if (previous == EMPTY && 4L * size >= 3L * capacity) {
+            return false;
+        }
+        byte[] packedSolution =
+                solution.isPresent() ? pack(solution.get().toString()) : new byte[PACKED_SIZE];
+        byte status = solution.isPresent() ? SOLVED : UNSOLVABLE;
+        for (int i = 0; i < PACKED_SIZE; i++) {
+            buffer.put(offset + 1 + i, key[i]);
+            buffer.put(offset + 1 + PACKED_SIZE + i, packedSolution[i]);
+        }
+        buffer.putInt(offset + 1 + 2 * PACKED_SIZE, checksum(status, offset));
+        // Written last, so that concurrent lookups only see the record once it is complete
+        buffer.put(offset, status);
+        if (previous == EMPTY) {
+            buffer.putInt(12, ++size);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the record holding the specified key, or else the record where it would be added,
+     * which is the first record with a mismatched checksum on its probe sequence if there is one,
+     * or else the empty record that ends the sequence. Returns -1 if there is no such record.
+     */
+    private int find(byte[] key) {
+        int start = (int) Long.remainderUnsigned(hash(key), capacity);
+        int reusable = -1;
+        for (int i = 0; i < capacity; i++) {
+            int record = (start + i) % capacity;
+            int offset = offset(record);
+            byte status = buffer.get(offset);
+            if (status == EMPTY) {
+                return reusable < 0 ? record : reusable;
+            }
+            if (holds(key, status, offset)) {
+                return record;
+            }
+            // The key may still be further on, if the record was corrupted after it was added
+            if (reusable < 0 && !intact(status, offset)) {
+                reusable = record;
+            }
+        }
+        return reusable;
+    }
+
+    /**
+     * Determines whether the record at the specified offset, which has the specified status, holds
+     * the specified key and has a matching checksum.
+     */
+    private boolean holds(byte[] key, byte status, int offset) {
+        for (int i = 0; i < PACKED_SIZE; i++) {
+            if (buffer.get(offset + 1 + i) != key[i]) {
+                return false;
+            }
+        }
+        return intact(status, offset);
+    }
+
+    /** Determines whether the record at the specified offset has a matching checksum. */
+    private boolean intact(byte status, int offset) {
+        return buffer.getInt(offset + 1 + 2 * PACKED_SIZE) == checksum(status, offset);
+    }
+
+    /** Returns the checksum of the record at the specified offset, with the specified status. */
+    private int checksum(byte status, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(status);
+        for (int i = 0; i < 2 * PACKED_SIZE; i++) {
+            crc.update(buffer.get(offset + 1 + i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    /** Packs the 81 digits of a grid's string representation two to a byte. */
+    private static byte[] pack(String grid) {
+        byte[] packed = new byte[PACKED_SIZE];
+        for (int i = 0; i < 81; i++) {
+            int digit = grid.charAt(i) - '0';
+            packed[i / 2] |= i % 2 == 0 ? digit << 4 : digit;
+        }
+        return packed;
+    }
+
+    /** The 64-bit FNV-1a hash of a packed key */
+    private static long hash(byte[] key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /** Writes the cache to disk, and releases the lock on its file. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!isReadOnly()) {
+            buffer.force();
+            lock.release();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/**
+ * Publishes the solutions of the grids read from a character-input stream, as many as its
+ * subscriber requests. A grid is read and solved only once there is demand for its result, so a
+ * slow subscriber holds back the reading instead of letting results pile up.
+ * 
+ * The protocol follows that of {@code java.util.concurrent.Flow} in Java 9: the subscriber is
+ * given a subscription, through which it requests results and may cancel, and is then sent at
+ * most as many results as it requested, followed by either a completion or an error signal if the
+ * input ends or fails. Signals are never sent concurrently. Requesting more results from within
+ * {@code onNext} does not grow the stack: the results are sent by the loop that is already
+ * running. A subscriber that throws from {@code onNext} has its subscription cancelled, and is
+ * sent nothing more.
+ * 
+ * The grids are read and solved by a task run on the executor given to the constructor, which by
+ * default is the thread that requests results. A publisher has a single subscriber. The caller is
+ * responsible for closing the character-input stream.
+ */
+public final class SolutionPublisher {
+
+    /** Receives the results of a publisher. */
+    public interface Subscriber {
+
+        /** Called once, before any other method, with the subscription to request results. */
+        void onSubscribe(Subscription subscription);
+
+        /** Called with each result, up to the number of results requested. */
+        void onNext(Result result);
+
+        /** Called once if reading or solving a grid fails. No other method is called after it. */
+        void onError(Throwable throwable);
+
+        /** Called once when the input ends. No other method is called after it. */
+        void onComplete();
+
+    }
+
+    /** The link between a publisher and its subscriber. */
+    public interface Subscription {
+
+        /**
+         * Adds the specified number of results to the demand of the subscriber. A demand of
+         * {@code Long.MAX_VALUE} or more is unbounded. A number that is not positive is answered
+         * with an {@code IllegalArgumentException} through {@code onError}.
+         */
+        void request(long n);
+
+        /** Stops sending results. Some results may still be sent if a solve is in progress. */
+        void cancel();
+
+    }
+
+    /** The solution of a grid, along with its position in the input. */
+    public static final class Result {
+
+        /** The position of the grid in the input, starting from one */
+        @Getter
+        private final int inputIndex;
+
+        @Getter
+        private final Grid puzzle;
+
+        @Getter
+        private final Optional<Grid> solution;
+
+        private Result(int inputIndex, Grid puzzle, Optional<Grid> solution) {
+            this.inputIndex = inputIndex;
+            this.puzzle = puzzle;
+            this.solution = solution;
+        }
+
+    }
+
+    private final BufferedReader input;
+    private final Heuristic heuristic;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /** Creates a publisher that solves the grids in the thread that requests their results. */
+    public SolutionPublisher(BufferedReader input, Heuristic heuristic) {
+        this(input, heuristic, Runnable::run);
+    }
+
+    /** Creates a publisher that reads and solves the grids on the specified executor. */
+    public SolutionPublisher(BufferedReader input, Heuristic heuristic, Executor executor) {
+        this.input = input;
+        this.heuristic = heuristic;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes the specified subscriber to the results. If the publisher already has a
+     * subscriber, the new one is sent an {@code IllegalStateException} through {@code onError}.
+     */
+    public void subscribe(Subscriber subscriber) {
+        if (subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Emitter(subscriber));
+        } else {
+            subscriber.onSubscribe(new Subscription() {
+
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+
+            });
+            subscriber.onError(new IllegalStateException("The publisher has a subscriber"));
+        }
+    }
+
+    /**
+     * Sends results to the subscriber while there is demand. The loop is run by at most one task
+     * at a time: a request made while it runs only records the demand and lets it go on.
+     */
+    private final class Emitter implements Subscription {
+
+        private final Subscriber subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // The number of times the loop was asked to run, minus the times it caught up
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile boolean badRequest = false;
+        private int inputCounter = 0;
+
+        Emitter(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = true;
+            } else {
+                long current;
+                do {
+                    current = demand.get();
+                } while (!demand.compareAndSet(current, addCapped(current, n)));
+            }
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::emit);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void emit() {
+            int missed = 1;
+            while (true) {
+                long requested = demand.get();
+                long sent = 0;
+                while (sent != requested && !cancelled && !badRequest) {
+                    if (!emitOne()) {
+                        return;
+                    }
+                    ++sent;
+                }
+                if (badRequest && !cancelled) {
+                    cancelled = true;
+                    subscriber.onError(new IllegalArgumentException("Nonpositive request"));
+                    return;
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-sent);
+                }
+                missed = pending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Reads and solves the next grid and sends its result. Returns false, after sending a
+         * completion or error signal, if there are no more results. Also returns false if the
+         * subscriber throws from {@code onNext}, which cancels the subscription, since the
+         * subscriber can no longer be relied on to handle signals.
+         */
+        private boolean emitOne() {
+            Result result;
+            try {
+                Optional<Grid> grid = App.readGrid(input);
+                if (!grid.isPresent()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return false;
+                }
+                result = new Result(++inputCounter, grid.get(),
+                        Solver.solve(grid.get(), heuristic));
+            } catch (IOException | RuntimeException e) {
+                cancelled = true;
+                subscriber.onError(e);
+                return false;
+            }
+            try {
+                subscriber.onNext(result);
+            } catch (RuntimeException e) {
+                cancelled = true;
+                return false;
+            }
+            return true;
+        }
+
+    }
+
+    private static long addCapped(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+}
@@ -0,0 +1,264 @@
+package sudoku;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import sudoku.exceptions.SolverInterruptedException;
+
+/**
+ * A spliterator over the solutions of a grid. It performs a depth-first search with an explicit
+ * stack of unexplored nodes, each of which is an annotated grid, branching as directed by a
+ * heuristic. Solutions are only searched for
+ * when they are requested, so a stream backed by this spliterator stops searching as soon as
+ * its terminal operation is satisfied.
+ * 
+ * Splitting hands off the unexplored nodes at the bottom of the stack, which are the closest to
+ * the root of the search tree and therefore tend to have the largest subtrees. If there is a
+ * single unexplored node, it is expanded first, and if that solves it, its solution is kept for
+ * the next advance instead of being expanded again. The work done by a spliterator obtained by
+ * splitting is not recorded in the statistics of the original one.
+ * 
+ * A transposition table may be given, in which the search records the branch points whose
+ * alternatives all turned out to be dead ends, and skips the branch points it finds there, as
+ * {@link Solver#countSolutions(Grid, long, TranspositionTable)} does with counts of zero. Since
+ * tables are not thread-safe, a spliterator obtained by splitting does not use the table, and
+ * the branch points with alternatives handed off to it are not recorded.
+ */
+final class SolutionSpliterator implements Spliterator<Grid> {
+
+    /** A node of the search tree that was not expanded yet. */
+    private static final class Node {
+
+        final AnnotatedGrid grid;
+        // The Zobrist hash of the candidates of the grid, or zero if there is no table
+        final long hash;
+        // The branch point this node is an alternative of, or null
+        final BranchPoint parent;
+
+        Node(AnnotatedGrid grid, long hash, BranchPoint parent) {
+            this.grid = grid;
+            this.hash = hash;
+            this.parent = parent;
+        }
+
+    }
+
+    /** A branch point of a search with a table. */
+    private static final class BranchPoint {
+
+        final long hash;
+        final BranchPoint parent;
+        // The number of nodes expanded before the branch point
+        final long nodesBefore;
+        // The number of alternatives not yet known to be dead ends
+        int open;
+        // Whether a solution was found below the branch point
+        boolean solved = false;
+
+        BranchPoint(long hash, BranchPoint parent, long nodesBefore, int open) {
+            this.hash = hash;
+            this.parent = parent;
+            this.nodesBefore = nodesBefore;
+            this.open = open;
+        }
+
+    }
+
+    private final Deque<Node> stack = new ArrayDeque<>();
+    private final Heuristic heuristic;
+    private final Statistics statistics;
+    private final Cancellation cancellation;
+    // The table of dead branch points, or null
+    private final TranspositionTable table;
+
+    // A solution found while splitting, which is returned before any node is expanded, or null
+    private Grid pending;
+
+    // There is no cheap estimate of the number of solutions. As with other spliterators of
+    // unknown size, the estimate is halved on every split to bound the splitting depth.
+    private long estimatedSize;
+
+    SolutionSpliterator(AnnotatedGrid root, Heuristic heuristic, Statistics statistics) {
+        this(root, heuristic, statistics, null);
+    }
+
+    /**
+     * Creates a spliterator whose search, and that of the spliterators split from it, stops once
+     * the specified cancellation, unless it is null, is cancelled.
+     */
+    SolutionSpliterator(AnnotatedGrid root, Heuristic heuristic, Statistics statistics,
+            Cancellation cancellation) {
+        this(root, heuristic, statistics, cancellation, null);
+    }
+
+    /**
+     * Creates a spliterator whose search records and skips dead branch points in the specified
+     * table, unless it is null, and stops once the specified cancellation, unless it is null, is
+     * cancelled.
+     */
+    SolutionSpliterator(AnnotatedGrid root, Heuristic heuristic, Statistics statistics,
+            Cancellation cancellation, TranspositionTable table) {
+        this(heuristic, statistics, cancellation, table, Long.MAX_VALUE);
+        statistics.setHeuristic(heuristic.getName());
+        stack.push(new Node(root, table == null ? 0 : TranspositionTable.hash(root), null));
+    }
+
+    private SolutionSpliterator(Heuristic heuristic, Statistics statistics,
+            Cancellation cancellation, TranspositionTable table, long estimatedSize) {
+        this.heuristic = heuristic;
+        this.statistics = statistics;
+        this.cancellation = cancellation;
+        this.table = table;
+        this.estimatedSize = estimatedSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Grid> action) {
+        while (hasUnexploredNodes()) {
+            Optional<Grid> solution = expandNext();
+            if (solution.isPresent()) {
+                action.accept(solution.get());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Determines whether there are nodes left to expand. */
+    boolean hasUnexploredNodes() {
+        return pending != null || !stack.isEmpty();
+    }
+
+    /**
+     * Expands the node on top of the stack, and returns its solution if it was solved. A solution
+     * found while splitting is returned first, without expanding a node.
+     * 
+     * @throws NoSuchElementException if there are no nodes left to expand
+     * @throws SolverInterruptedException if the cancellation of this spliterator is cancelled
+     */
+    Optional<Grid> expandNext() {
+        checkCancelled();
+        if (pending != null) {
+            Grid solution = pending;
+            pending = null;
+            return Optional.of(solution);
+        }
+        Node node = stack.pop();
+        return expand(node) ? Optional.of(new Grid(node.grid)) : Optional.empty();
+    }
+
+    /**
+     * Fills in the cells of the specified node that can be filled in without guessing until the
+     * node is solved, is found to be a dead end, or the heuristic has several alternatives to
+     * branch on. In the last case, pushes one child node onto the stack for each alternative,
+     * unless the table records the branch point as dead.
+     * 
+     * @return true if, and only if, the node was solved
+     */
+    private boolean expand(Node node) {
+        statistics.countNode();
+        AnnotatedGrid grid = node.grid;
+        long hash = node.hash;
+        while (grid.hasEmptyCell()) {
+            List<Placement> alternatives = grid.isConsistent() && !Solver.ranOutOfCandidates(grid)
+                    ? heuristic.branch(grid)
+                    : Collections.<Placement>emptyList();
+            if (alternatives.isEmpty() || (alternatives.size() > 1 && table != null
+                    && table.lookup(hash) == 0)) {
+                statistics.countBacktrack();
+                deadEnd(node.parent);
+                return false;
+            }
+            if (alternatives.size() > 1) {
+                statistics.countBranchPoint();
+                BranchPoint branchPoint = table == null ? null
+                        : new BranchPoint(hash, node.parent, statistics.getNodes(),
+                                alternatives.size());
+                // Push in reverse order, so that the first alternative is explored first
+                for (int i = alternatives.size() - 1; i > 0; i--) {
+                    AnnotatedGrid child = new AnnotatedGrid(grid);
+                    stack.push(new Node(child, place(child, alternatives.get(i), hash),
+                            branchPoint));
+                }
+                stack.push(new Node(grid, place(grid, alternatives.get(0), hash), branchPoint));
+                return false;
+            }
+            hash = place(grid, alternatives.get(0), hash);
+        }
+        if (!grid.isConsistent()) {
+            deadEnd(node.parent);
+            return false;
+        }
+        for (BranchPoint b = node.parent; b != null && !b.solved; b = b.parent) {
+            b.solved = true;
+        }
+        return true;
+    }
+
+    /**
+     * Places the digit of the specified placement in the specified grid, and returns the hash of
+     * the grid afterwards if there is a table.
+     */
+    private long place(AnnotatedGrid grid, Placement placement, long hash) {
+        if (table == null) {
+            grid.setDigit(placement.getCell(), placement.getDigit());
+            return 0;
+        }
+        return TranspositionTable.place(grid, placement, hash);
+    }
+
+    /**
+     * Records that an alternative of the specified branch point, which may be null, is a dead
+     * end. Once every alternative of a branch point without solutions is, records the branch
+     * point as dead in the table, and so on up the search tree.
+     */
+    private void deadEnd(BranchPoint branchPoint) {
+        for (BranchPoint b = branchPoint; b != null && !b.solved && --b.open == 0; b = b.parent) {
+            table.store(b.hash, 0, statistics.getNodes() - b.nodesBefore);
+        }
+    }
+
+    @Override
+    public Spliterator<Grid> trySplit() {
+        if (stack.size() == 1 && pending == null) {
+            checkCancelled();
+            Node node = stack.pop();
+            if (expand(node)) {
+                pending = new Grid(node.grid);
+            }
+        }
+        if (stack.size() < 2) {
+            return null;
+        }
+        estimatedSize >>>= 1;
+        SolutionSpliterator split =
+                new SolutionSpliterator(heuristic, new Statistics(), cancellation, null,
+                        estimatedSize);
+        for (int n = stack.size() / 2; n > 0; n--) {
+            split.stack.addFirst(stack.pollLast());
+        }
+        return split;
+    }
+
+    private void checkCancelled() {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return hasUnexploredNodes() ? estimatedSize : 0;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | DISTINCT;
+    }
+
+}
@@ -0,0 +1,115 @@
+package sudoku;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.Getter;
+
+/**
+ * Runs many searches on a fixed pool of threads, taking turns in slices of a bounded number of
+ * nodes, so that easy grids are not held up behind hard ones and no search takes a thread of its
+ * own.
+ * 
+ * Each search is a {@link ResumableSolver}. A thread of the pool runs one slice of the search,
+ * then puts it back at the end of the queue of the pool if it has not finished, so the searches
+ * in progress take turns in round-robin order. The time a search waits for its first slice
+ * grows with the number of searches in progress, and not with how hard they are.
+ * 
+ * A scheduler owns its threads, which are shut down when it is closed.
+ */
+public final class SolveScheduler implements AutoCloseable {
+
+    /** The number of nodes a search expands before giving up its thread */
+    @Getter
+    private final long slice;
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a scheduler with the specified number of threads, which run searches in slices of
+     * the specified number of nodes.
+     * 
+     * @throws IllegalArgumentException if either number is not positive
+     */
+    public SolveScheduler(int threads, long slice) {
+        if (threads <= 0 || slice <= 0) {
+            throw new IllegalArgumentException("Bad threads or slice: " + threads + ", " + slice);
+        }
+        this.slice = slice;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules a search for a solution of the specified grid, and returns a future that completes
+     * with the solution, if one exists. Cancelling the future stops the search at its next turn.
+     * The heuristic must not be shared with other searches if it keeps state, as randomized
+     * heuristics do.
+     * 
+     * @throws RejectedExecutionException if the scheduler is closed
+     */
+    public CompletableFuture<Optional<Grid>> submit(Grid grid, Heuristic heuristic) {
+        Task task = new Task(new ResumableSolver(grid, heuristic));
+        executor.execute(task);
+        return task.future;
+    }
+
+    /** A search in progress, which runs one slice each time it is run. */
+    private final class Task implements Runnable {
+
+        private final ResumableSolver search;
+        private final CompletableFuture<Optional<Grid>> future = new CompletableFuture<>();
+
+        Task(ResumableSolver search) {
+            this.search = search;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            ResumableSolver.State state;
+            try {
+                state = search.step(slice);
+            } catch (Throwable e) {
+                // Also errors, such as a stack overflow, which would otherwise leave the future
+                // incomplete forever
+                future.completeExceptionally(e);
+                return;
+            }
+            if (state != ResumableSolver.State.RUNNING) {
+                future.complete(search.getSolution());
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+    /**
+     * Shuts down the threads of this scheduler. The futures of the searches that have not finished
+     * complete exceptionally: with a {@code CancellationException} for those waiting for their
+     * turn, and a {@code SolverInterruptedException} for those interrupted during a slice.
+     */
+    @Override
+    public void close() {
+        List<Runnable> waiting = executor.shutdownNow();
+        for (Runnable task : waiting) {
+            ((Task) task).future.completeExceptionally(
+                    new CancellationException("The scheduler was closed"));
+        }
+    }
+
+}
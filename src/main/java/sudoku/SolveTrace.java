@@ -0,0 +1,194 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import lombok.Getter;
+import sudoku.GridElements.Cell;
+
+/**
+ * A record of the steps taken by the search of {@link Solver} on a grid, kept in a preallocated
+ * ring buffer so that recording a step costs a few arithmetic operations and an array store.
+ * Each step is packed into a {@code short}: its kind in the two lowest bits, its digit in the next
+ * four and its cell, in row-major order, in the remaining ones. The solver records steps only when
+ * it is given a trace, so solves without one pay nothing for it.
+ * 
+ * The steps can be decoded into readable form, and replayed from the puzzle to rebuild the grid
+ * the search worked on after any of them. Once more steps are recorded than fit in the buffer, the
+ * oldest are overwritten: the remaining steps can still be decoded, but no longer replayed. A
+ * trace is reused by each solve it is given to, and must not be shared by threads.
+ */
+public final class SolveTrace {
+
+    /** The kinds of steps of the search. */
+    public enum Kind {
+
+        /** A digit is placed in the grid being searched, as the only or last alternative left */
+        PLACE,
+
+        /** A copy of the grid is searched with a digit placed in it, one level deeper */
+        GUESS,
+
+        /** The search of the latest guess failed, and goes back to the grid it was copied from */
+        BACKTRACK,
+
+        /** A digit that failed as a guess is ruled out as a candidate for its cell */
+        RULE_OUT;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT).replace('_', ' ');
+        }
+
+    }
+
+    /** A decoded step of the search. */
+    public static final class Step {
+
+        @Getter
+        private final Kind kind;
+
+        @Getter
+        private final Cell cell;
+
+        @Getter
+        private final Digit digit;
+
+        /** The number of guesses the search was in after the step */
+        @Getter
+        private final int depth;
+
+        private Step(Kind kind, Cell cell, Digit digit, int depth) {
+            this.kind = kind;
+            this.cell = cell;
+            this.digit = digit;
+            this.depth = depth;
+        }
+
+        /** Returns a line such as "guess 5 at (2, 7), depth 1". */
+        @Override
+        public String toString() {
+            return kind + " " + digit.toInt() + " at " + cell + ", depth " + depth;
+        }
+
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Digit[] DIGITS = Digit.values();
+
+    private final short[] steps;
+    private final int mask;
+    private long recorded;
+    private Grid puzzle = new Grid();
+
+    /**
+     * Creates a trace that keeps at least the specified number of steps, rounded up to a power of
+     * two.
+     * 
+     * @throws IllegalArgumentException if the capacity is not between 2 and 2^30
+     */
+    public SolveTrace(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Bad capacity: " + capacity);
+        }
+        steps = new short[Integer.highestOneBit(capacity - 1) << 1];
+        mask = steps.length - 1;
+    }
+
+    /** Discards the recorded steps, and keeps a copy of the puzzle to be searched. */
+    void start(Grid grid) {
+        recorded = 0;
+        puzzle = new Grid(grid);
+    }
+
+    /** Records a step. */
+    void record(Kind kind, Cell cell, Digit digit) {
+        steps[(int) recorded++ & mask] = (short) (kind.ordinal()
+                | digit.ordinal() << 2 | (9 * cell.getRow() + cell.getColumn()) << 6);
+    }
+
+    /** Returns the number of steps the buffer can keep. */
+    public int getCapacity() {
+        return steps.length;
+    }
+
+    /** Returns the number of steps recorded since the solve started, including overwritten ones. */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /** Returns the number of steps that were overwritten. */
+    public long getDropped() {
+        return Math.max(0, recorded - steps.length);
+    }
+
+    /** Returns a copy of the puzzle whose search was recorded. */
+    public Grid getPuzzle() {
+        return new Grid(puzzle);
+    }
+
+    /**
+     * Returns the steps still in the buffer, oldest first, decoded. The depths are counted from
+     * the first step kept, so they are relative if steps were dropped.
+     */
+    public List<Step> steps() {
+        int size = (int) Math.min(recorded, steps.length);
+        List<Step> decoded = new ArrayList<>(size);
+        int depth = 0;
+        for (long i = recorded - size; i < recorded; i++) {
+            short step = steps[(int) i & mask];
+            Kind kind = KINDS[step & 3];
+            int index = step >>> 6;
+            if (kind == Kind.GUESS) {
+                ++depth;
+            } else if (kind == Kind.BACKTRACK) {
+                --depth;
+            }
+            decoded.add(new Step(kind, Cell.of(index / 9, index % 9), DIGITS[(step >>> 2) & 15],
+                    depth));
+        }
+        return decoded;
+    }
+
+    /**
+     * Rebuilds the grid the search worked on after the specified number of steps, by replaying
+     * them from the puzzle. After zero steps, this is the puzzle with its candidates.
+     * 
+     * @throws IllegalStateException if steps were dropped
+     * @throws IndexOutOfBoundsException if more steps are asked for than were recorded
+     */
+    public AnnotatedGrid gridAfter(int stepCount) {
+        if (getDropped() > 0) {
+            throw new IllegalStateException(getDropped() + " steps were dropped");
+        }
+        if (stepCount < 0 || stepCount > recorded) {
+            throw new IndexOutOfBoundsException("Bad step count: " + stepCount);
+        }
+        // The grids of the guesses in progress, the innermost last
+        List<AnnotatedGrid> stack = new ArrayList<>();
+        stack.add(AnnotatedGrid.fromOrdinaryGrid(puzzle));
+        for (Step step : steps().subList(0, stepCount)) {
+            AnnotatedGrid top = stack.get(stack.size() - 1);
+            switch (step.kind) {
+                case PLACE:
+                    top.setDigit(step.cell, step.digit);
+                    break;
+                case GUESS:
+                    AnnotatedGrid copy = new AnnotatedGrid(top);
+                    copy.setDigit(step.cell, step.digit);
+                    stack.add(copy);
+                    break;
+                case BACKTRACK:
+                    stack.remove(stack.size() - 1);
+                    break;
+                case RULE_OUT:
+                    top.ruleOut(step.digit, step.cell);
+                    break;
+                default:
+                    throw new AssertionError(step.kind);
+            }
+        }
+        return stack.get(stack.size() - 1);
+    }
+
+}
@@ -2,9 +2,13 @@ package sudoku;
 
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import sudoku.GridElements.Cell;
+import sudoku.exceptions.SolverInterruptedException;
 
 public class Solver {
 
@@ -15,39 +19,315 @@ public class Solver {
      * puzzles from Project Euler's Problem 96 can be solved in well under one second.
      */
     public static Optional<Grid> solve(Grid grid) {
-        return solve(AnnotatedGrid.fromOrdinaryGrid(grid));
+        return solve(grid, Heuristic.fewestCandidates());
     }
 
-    private static Optional<Grid> solve(AnnotatedGrid grid) {
+    /**
+     * Returns a solution to the given Sudoku grid, if one exists, branching as directed by the
+     * specified heuristic.
+     */
+    public static Optional<Grid> solve(Grid grid, Heuristic heuristic) {
+        return solve(grid, heuristic, new Statistics());
+    }
+
+    /**
+     * Returns a solution to the given Sudoku grid, if one exists, branching as directed by the
+     * specified heuristic. Records the work done in the specified statistics.
+     */
+    public static Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics) {
+        return solve(grid, heuristic, statistics, -1);
+    }
+
+    /**
+     * Returns a solution to the given Sudoku grid, if one exists, branching as directed by the
+     * specified heuristic. Records the steps of the search in the specified trace, replacing the
+     * steps of its previous solve.
+     */
+    public static Optional<Grid> solve(Grid grid, Heuristic heuristic, SolveTrace trace) {
+        trace.start(grid);
+        Statistics statistics = new Statistics();
+        statistics.setHeuristic(heuristic.getName());
+        return solve(AnnotatedGrid.fromOrdinaryGrid(grid), heuristic, statistics, trace, null);
+    }
+
+    /**
+     * Returns a solution to the given grid of the Sudoku variant with the specified units, if one
+     * exists. The search is that of {@link Engine#BITMASK}, which handles any units at the same
+     * cost per unit.
+     */
+    public static Optional<Grid> solve(Grid grid, Units units) {
+        return new BitmaskSolver(units).solve(grid, new Statistics());
+    }
+
+    /**
+     * Returns a solution to the given Sudoku grid, if one exists, found with the engine and
+     * heuristic to which the specified router sends the grid.
+     */
+    public static Optional<Grid> solve(Grid grid, Router router) {
+        return router.solve(grid, new Statistics());
+    }
+
+    /**
+     * Solves the given grid, which is at the specified position of the input of a batch run. The
+     * position is reported in the Flight Recorder event for the solve.
+     */
+    static Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+            int inputIndex) {
+        return solve(grid, heuristic, statistics, inputIndex, null);
+    }
+
+    /**
+     * Solves the given grid as {@link #solve(Grid, Heuristic, Statistics, int)} does, stopping
+     * once the specified cancellation, unless it is null, is cancelled.
+     * 
+     * @throws SolverInterruptedException if the cancellation is cancelled
+     */
+    static Optional<Grid> solve(Grid grid, Heuristic heuristic, Statistics statistics,
+            int inputIndex, Cancellation cancellation) {
+        Events.Solve event = Events.recorderInitialized() ? Events.begin(new Events.Solve()) : null;
+        long nodes = statistics.getNodes();
+        long backtracks = statistics.getBacktracks();
+        statistics.setHeuristic(heuristic.getName());
+        Optional<Grid> solved =
+                solve(AnnotatedGrid.fromOrdinaryGrid(grid), heuristic, statistics, null,
+                        cancellation);
+        if (event != null && event.shouldCommit()) {
+            event.inputIndex = inputIndex;
+            event.clues = Events.clues(grid);
+            event.heuristic = heuristic.getName();
+            event.outcome = solved.isPresent() ? "solved" : "unsolvable";
+            event.nodes = statistics.getNodes() - nodes;
+            event.backtracks = statistics.getBacktracks() - backtracks;
+            event.commit();
+        }
+        return solved;
+    }
+
+    /**
+     * Returns a lazily evaluated stream of all solutions to the given Sudoku grid.
+     * 
+     * The search for solutions advances only as far as the stream is consumed, so short-circuiting
+     * operations such as {@code limit()} and {@code findAny()} stop it early. The solutions are not
+     * ordered. If the stream is made parallel, unexplored branches of the search tree are handed
+     * off to other threads of the common fork/join pool.
+     */
+    public static Stream<Grid> solutions(Grid grid) {
+        return solutions(grid, Heuristic.fewestCandidates());
+    }
+
+    /**
+     * Returns a lazily evaluated stream of all solutions to the given Sudoku grid, which the search
+     * finds in the order directed by the specified heuristic. See {@link #solutions(Grid)}.
+     */
+    public static Stream<Grid> solutions(Grid grid, Heuristic heuristic) {
+        return StreamSupport.stream(new SolutionSpliterator(AnnotatedGrid.fromOrdinaryGrid(grid),
+                heuristic, new Statistics()), false);
+    }
+
+    /**
+     * Returns a lazily evaluated stream of all solutions to the given Sudoku grid, as
+     * {@link #solutions(Grid, Heuristic)} does, skipping the branch points recorded in the
+     * specified transposition table as having no solution, and recording there those found to
+     * have none. The table may be shared with counts, whose counts of zero are skipped as well.
+     * In a parallel stream, the branches handed off to other threads do not use the table.
+     */
+    public static Stream<Grid> solutions(Grid grid, Heuristic heuristic,
+            TranspositionTable table) {
+        return StreamSupport.stream(new SolutionSpliterator(AnnotatedGrid.fromOrdinaryGrid(grid),
+                heuristic, new Statistics(), null, table), false);
+    }
+
+    /**
+     * Returns the number of solutions of the given Sudoku grid, or the specified limit if there are
+     * at least as many.
+     * 
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public static long countSolutions(Grid grid, long limit) {
+        return countSolutions(grid, limit, null, new Statistics());
+    }
+
+    /**
+     * Returns the number of solutions of the given Sudoku grid, or the specified limit if there are
+     * at least as many, looking up and recording the counts of the grids reached at branch points
+     * in the specified transposition table. This makes exhaustive counts practical on sparse
+     * grids, where different orders of guesses often reach the same grid.
+     * 
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public static long countSolutions(Grid grid, long limit, TranspositionTable table) {
+        return countSolutions(grid, limit, table, new Statistics());
+    }
+
+    /**
+     * Counts solutions as {@link #countSolutions(Grid, long, TranspositionTable)} does, recording
+     * the work done in the specified statistics. The table may be null.
+     */
+    static long countSolutions(Grid grid, long limit, TranspositionTable table,
+            Statistics statistics) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Bad limit: " + limit);
+        }
+        Heuristic heuristic = Heuristic.fewestCandidates();
+        statistics.setHeuristic(heuristic.getName());
+        AnnotatedGrid annotatedGrid = AnnotatedGrid.fromOrdinaryGrid(grid);
+        return countSolutions(annotatedGrid, TranspositionTable.hash(annotatedGrid), limit,
+                heuristic, table, statistics);
+    }
+
+    /**
+     * Counts the solutions of the specified grid, whose Zobrist hash is given, up to the specified
+     * limit. Unlike the search for a single solution, this never rules out candidates other than
+     * by placing digits, so that the hash identifies the number of solutions of each grid reached.
+     */
+    private static long countSolutions(AnnotatedGrid grid, long hash, long limit,
+            Heuristic heuristic, TranspositionTable table, Statistics statistics) {
+        statistics.countNode();
+        while (grid.hasEmptyCell()) {
+            if (!grid.isConsistent() || ranOutOfCandidates(grid)) {
+                return 0;
+            }
+            List<Placement> alternatives = heuristic.branch(grid);
+            if (alternatives.isEmpty()) {
+                return 0;
+            }
+            if (alternatives.size() > 1) {
+                statistics.countBranchPoint();
+                return countBranches(grid, hash, alternatives, limit, heuristic, table,
+                        statistics);
+            }
+            hash = TranspositionTable.place(grid, alternatives.get(0), hash);
+        }
+        return grid.isConsistent() ? 1 : 0;
+    }
+
+    /**
+     * Adds up the numbers of solutions of copies of the specified grid in which each of the
+     * specified alternatives is placed. Counts that stopped at the limit are not recorded in the
+     * table, since they may be incomplete.
+     */
+    private static long countBranches(AnnotatedGrid grid, long hash, List<Placement> alternatives,
+            long limit, Heuristic heuristic, TranspositionTable table, Statistics statistics) {
+        if (table != null) {
+            long known = table.lookup(hash);
+            if (known >= 0) {
+                return Math.min(known, limit);
+            }
+        }
+        long nodes = statistics.getNodes();
+        long count = 0;
+        for (Placement alternative : alternatives) {
+            AnnotatedGrid clone = new AnnotatedGrid(grid);
+            long cloneHash = TranspositionTable.place(clone, alternative, hash);
+            count += countSolutions(clone, cloneHash, limit - count, heuristic, table,
+                    statistics);
+            if (count >= limit) {
+                return count;
+            }
+        }
+        if (table != null) {
+            table.store(hash, count, statistics.getNodes() - nodes);
+        }
+        return count;
+    }
+
+    /**
+     * Returns a solution to the specified annotated grid, if one exists, respecting the candidates
+     * that have been ruled out in it, as by the pencil marks of
+     * {@link AnnotatedGrid#fromPencilMarks(CharSequence)}. The grid is left as it is.
+     */
+    public static Optional<Grid> solveAnnotated(AnnotatedGrid grid, Heuristic heuristic) {
+        return solveAnnotated(new AnnotatedGrid(grid), heuristic, new Statistics());
+    }
+
+    /**
+     * Returns a solution to the specified annotated grid, if one exists, respecting the candidates
+     * that have been ruled out in it. The grid is modified by the search.
+     */
+    static Optional<Grid> solveAnnotated(AnnotatedGrid grid, Heuristic heuristic,
+            Statistics statistics) {
+        statistics.setHeuristic(heuristic.getName());
+        return solve(grid, heuristic, statistics, null, null);
+    }
+
+    /**
+     * Searches for a solution of the specified annotated grid, modifying it, and records the steps
+     * of the search in the specified trace unless it is null. Stops once the specified
+     * cancellation, unless it is null, is cancelled.
+     */
+    private static Optional<Grid> solve(AnnotatedGrid grid, Heuristic heuristic,
+            Statistics statistics, SolveTrace trace, Cancellation cancellation) {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+        statistics.countNode();
         while (grid.hasEmptyCell()) {
             if (!grid.isConsistent() || ranOutOfCandidates(grid)) {
                 return Optional.empty();
             }
-            Cell cell = cellWithFewestCandidates(grid);
-            while (multipleCandidatesExistFor(grid, cell)) {
-                Digit d = candidateFor(grid, cell);
-                AnnotatedGrid clone = new AnnotatedGrid(grid);
-                clone.setDigit(cell, d);
-                Optional<Grid> solved = solve(clone);
+            List<Placement> alternatives = heuristic.branch(grid);
+            if (alternatives.isEmpty()) {
+                return Optional.empty();
+            }
+            if (alternatives.size() > 1) {
+                statistics.countBranchPoint();
+                Optional<Grid> solved =
+                        tryAllButLast(grid, alternatives, heuristic, statistics, trace,
+                                cancellation);
                 if (solved.isPresent()) {
                     return solved;
                 }
-                grid.ruleOut(d, cell);
             }
-            grid.setDigit(cell, candidateFor(grid, cell));
+            Placement last = alternatives.get(alternatives.size() - 1);
+            if (trace != null) {
+                trace.record(SolveTrace.Kind.PLACE, last.getCell(), last.getDigit());
+            }
+            grid.setDigit(last.getCell(), last.getDigit());
         }
         return grid.isConsistent() ? Optional.of(new Grid(grid)) : Optional.empty();
     }
 
-    private static Digit candidateFor(AnnotatedGrid grid, Cell cell) {
-        return grid.candidates(cell).iterator().next();
-    }
-
-    private static boolean multipleCandidatesExistFor(AnnotatedGrid grid, Cell coords) {
-        return grid.candidates(coords).size() > 1;
+    /**
+     * Tries each of the specified alternatives but the last in a copy of the specified grid,
+     * returning the first solution found. Rules out each alternative that fails in the grid
+     * itself.
+     */
+    private static Optional<Grid> tryAllButLast(AnnotatedGrid grid, List<Placement> alternatives,
+            Heuristic heuristic, Statistics statistics, SolveTrace trace,
+            Cancellation cancellation) {
+        Events.Branch event =
+                Events.recorderInitialized() ? Events.begin(new Events.Branch()) : null;
+        long nodes = statistics.getNodes();
+        Optional<Grid> solved = Optional.empty();
+        for (Placement alternative : alternatives.subList(0, alternatives.size() - 1)) {
+            AnnotatedGrid clone = new AnnotatedGrid(grid);
+            clone.setDigit(alternative.getCell(), alternative.getDigit());
+            if (trace != null) {
+                trace.record(SolveTrace.Kind.GUESS, alternative.getCell(), alternative.getDigit());
+            }
+            solved = solve(clone, heuristic, statistics, trace, cancellation);
+            if (solved.isPresent()) {
+                break;
+            }
+            statistics.countBacktrack();
+            grid.ruleOut(alternative.getDigit(), alternative.getCell());
+            if (trace != null) {
+                trace.record(SolveTrace.Kind.BACKTRACK, alternative.getCell(),
+                        alternative.getDigit());
+                trace.record(SolveTrace.Kind.RULE_OUT, alternative.getCell(),
+                        alternative.getDigit());
+            }
+        }
+        if (event != null && event.shouldCommit()) {
+            event.firstAlternative = alternatives.get(0).toString();
+            event.alternatives = alternatives.size();
+            event.nodes = statistics.getNodes() - nodes;
+            event.commit();
+        }
+        return solved;
     }
 
-    private static boolean ranOutOfCandidates(AnnotatedGrid grid) {
+    static boolean ranOutOfCandidates(AnnotatedGrid grid) {
         for (Cell cell : grid.emptyCells()) {
             if (grid.candidates(cell).size() == 0) {
                 return true;
@@ -56,13 +336,12 @@ public class Solver {
         return false;
     }
 
-    private static Cell cellWithFewestCandidates(AnnotatedGrid grid) {
-        try {
-            return Collections.min(grid.emptyCells(),
-                    Comparator.comparingInt(cell -> grid.candidates(cell).size()));
-        } catch (NullPointerException e) {
+    static Cell cellWithFewestCandidates(AnnotatedGrid grid) {
+        if (!grid.hasEmptyCell()) {
             throw new NoSuchElementException("The grid is full.");
         }
+        return Collections.min(grid.emptyCells(),
+                Comparator.comparingInt(cell -> grid.candidates(cell).size()));
     }
 
 }
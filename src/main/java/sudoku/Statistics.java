@@ -0,0 +1,53 @@
+package sudoku;
+
+import lombok.Getter;
+
+/**
+ * Counters describing the work done by the solver, along with the name of the heuristic that
+ * guided it. The counters accumulate if the same instance is passed to several solves. Instances
+ * of this class are not thread-safe.
+ */
+public final class Statistics {
+
+    @Getter
+    private String heuristic = "";
+
+    /** The number of nodes of the search tree that were visited */
+    @Getter
+    private long nodes = 0;
+
+    /** The number of nodes at which the search had to choose among several alternatives */
+    @Getter
+    private long branchPoints = 0;
+
+    /** The number of alternatives that were tried and turned out to lead to no solution */
+    @Getter
+    private long backtracks = 0;
+
+    void setHeuristic(String heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    void countNode() {
+        ++nodes;
+    }
+
+    void countNodes(long count) {
+        nodes += count;
+    }
+
+    void countBranchPoint() {
+        ++branchPoints;
+    }
+
+    void countBacktrack() {
+        ++backtracks;
+    }
+
+    @Override
+    public String toString() {
+        return heuristic + ": " + nodes + " nodes, " + branchPoints + " branch points, "
+                + backtracks + " backtracks";
+    }
+
+}
@@ -0,0 +1,165 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.Random;
+import lombok.Getter;
+import sudoku.GridElements.Cell;
+
+/**
+ * A bounded table of the numbers of solutions of grids already counted, which lets a count skip
+ * grids that the search reaches again through a different order of guesses. A count of zero
+ * records a grid known to have no solution.
+ * 
+ * The number of solutions of an annotated grid only depends on the candidates left for its empty
+ * cells, not on the digits placed in the other cells: grids that differ only in how a few digits
+ * are swapped among nonempty cells often leave the same candidates, and so have the same number
+ * of solutions. A grid is therefore identified by the Zobrist hash of its candidates, which is the
+ * exclusive or of a random 64-bit key for each pair of an empty cell and one of its candidates,
+ * and which the search updates incrementally as it places digits. Since the candidates are all a
+ * count depends on, the same table can be shared by counts of different puzzles. Two grids with
+ * the same hash are taken to be the same grid, which is wrong with negligible probability.
+ * 
+ * Entries are kept in buckets of two. When a bucket is full, a new entry replaces the one whose
+ * count took less work, in nodes of the search tree, and the other one is kept in the second slot,
+ * so that expensive counts are not evicted by the many cheap ones near the leaves. Instances of
+ * this class are not thread-safe.
+ */
+public final class TranspositionTable {
+
+    private static final long[] KEYS = new long[81 * 9];
+
+    static {
+        // A fixed seed makes hashes, and thus the performance of the table, reproducible
+        Random random = new Random(81);
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = random.nextLong();
+        }
+    }
+
+    private final long[] hashes;
+    private final long[] counts;
+    private final long[] work;
+    private final int bucketMask;
+
+    /** The number of lookups that found the grid in the table */
+    @Getter
+    private long hits = 0;
+
+    /** The number of lookups that did not find the grid in the table */
+    @Getter
+    private long misses = 0;
+
+    /** The number of entries stored, including the ones that replaced others */
+    @Getter
+    private long stores = 0;
+
+    /** The number of entries that were evicted to make room for others */
+    @Getter
+    private long replacements = 0;
+
+    /**
+     * Creates an empty table with room for the specified number of entries, rounded up to a power
+     * of two. Each entry takes 24 bytes.
+     * 
+     * @throws IllegalArgumentException if the capacity is not between 2 and 2^30
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Bad capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        hashes = new long[size];
+        counts = new long[size];
+        work = new long[size];
+        Arrays.fill(counts, -1);
+        bucketMask = size / 2 - 1;
+    }
+
+    /** Returns the number of entries this table has room for. */
+    public int getCapacity() {
+        return hashes.length;
+    }
+
+    /** Returns the Zobrist key of the specified digit as a candidate for the specified cell. */
+    static long key(Cell cell, Digit d) {
+        return KEYS[9 * (9 * cell.getRow() + cell.getColumn()) + d.ordinal()];
+    }
+
+    /** Returns the Zobrist hash of the candidates left in the specified grid. */
+    static long hash(AnnotatedGrid grid) {
+        long hash = 0;
+        for (Cell cell : grid.emptyCells()) {
+            for (Digit d : grid.candidates(cell)) {
+                hash ^= key(cell, d);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Sets the digit of the specified placement in the specified grid, and returns the hash of
+     * the grid afterwards, given its hash before. The candidates that are ruled out are removed
+     * from the hash.
+     */
+    static long place(AnnotatedGrid grid, Placement placement, long hash) {
+        Cell cell = placement.getCell();
+        Digit d = placement.getDigit();
+        for (Digit candidate : grid.candidates(cell)) {
+            hash ^= key(cell, candidate);
+        }
+        for (Cell peer : GridElements.peers(cell)) {
+            if (!grid.digitAt(peer).isPresent() && grid.candidates(peer).contains(d)) {
+                hash ^= key(peer, d);
+            }
+        }
+        grid.setDigit(cell, d);
+        return hash;
+    }
+
+    /** Returns the number of solutions of the grid with the specified hash, or -1 if unknown. */
+    long lookup(long hash) {
+        int slot = 2 * ((int) hash & bucketMask);
+        for (int i = slot; i < slot + 2; i++) {
+            if (counts[i] >= 0 && hashes[i] == hash) {
+                ++hits;
+                return counts[i];
+            }
+        }
+        ++misses;
+        return -1;
+    }
+
+    /**
+     * Records the number of solutions of the grid with the specified hash, and the number of nodes
+     * it took to count them.
+     */
+    void store(long hash, long count, long nodes) {
+        int first = 2 * ((int) hash & bucketMask);
+        int second = first + 1;
+        int slot = first;
+        if (counts[first] >= 0 && hashes[first] != hash) {
+            if (counts[second] >= 0 && hashes[second] != hash) {
+                ++replacements;
+            }
+            if (nodes < work[first]) {
+                slot = second;
+            } else {
+                // Keep the entry that took more work in the first slot
+                hashes[second] = hashes[first];
+                counts[second] = counts[first];
+                work[second] = work[first];
+            }
+        }
+        ++stores;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        work[slot] = nodes;
+    }
+
+    @Override
+    public String toString() {
+        return hits + " hits, " + misses + " misses, " + stores + " stores, " + replacements
+                + " replacements";
+    }
+
+}
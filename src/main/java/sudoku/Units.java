@@ -0,0 +1,278 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import sudoku.GridElements.Cell;
+
+/**
+ * The units of a Sudoku variant: the sets of cells whose digits must be distinct. A unit may also
+ * be a cage, whose digits must add up to a given sum. The standard units are the 27 rows, columns
+ * and boxes; variants add units, such as the diagonals of X-Sudoku, or replace the boxes, such as
+ * the irregular regions of Jigsaw Sudoku.
+ * 
+ * For each cell, the units that contain it are looked up once, when the units are created, so
+ * that solving a variant costs no more per node than solving a standard grid with as many units.
+ * Instances of this class are immutable: the methods that add units return new instances.
+ */
+public final class Units {
+
+    /** The number of rows, columns and boxes or regions, which are the first units */
+    static final int BASIC_UNITS = 27;
+
+    private static final int ALL_DIGITS = 0x1FF;
+
+    // The masks of the sets of distinct digits with each size and sum
+    private static final int[][][] COMBINATIONS = new int[10][46][];
+
+    static {
+        List<List<List<Integer>>> combinations = new ArrayList<>();
+        for (int size = 0; size <= 9; size++) {
+            List<List<Integer>> bySum = new ArrayList<>();
+            for (int sum = 0; sum <= 45; sum++) {
+                bySum.add(new ArrayList<>());
+            }
+            combinations.add(bySum);
+        }
+        for (int mask = 0; mask <= ALL_DIGITS; mask++) {
+            int sum = 0;
+            for (int digit = 1; digit <= 9; digit++) {
+                if ((mask & (1 << (digit - 1))) != 0) {
+                    sum += digit;
+                }
+            }
+            combinations.get(Integer.bitCount(mask)).get(sum).add(mask);
+        }
+        for (int size = 0; size <= 9; size++) {
+            for (int sum = 0; sum <= 45; sum++) {
+                List<Integer> masks = combinations.get(size).get(sum);
+                COMBINATIONS[size][sum] = new int[masks.size()];
+                for (int i = 0; i < masks.size(); i++) {
+                    COMBINATIONS[size][sum][i] = masks.get(i);
+                }
+            }
+        }
+    }
+
+    // The cells of each unit, by index in row-major order
+    private final List<int[]> units;
+
+    // The sum of each unit, or zero if the unit is not a cage
+    private final List<Integer> sums;
+
+    // The units that contain each cell, in increasing order
+    private final int[][] cellUnits = new int[81][];
+
+    private Units(List<int[]> units, List<Integer> sums) {
+        this.units = Collections.unmodifiableList(units);
+        this.sums = Collections.unmodifiableList(sums);
+        for (int cell = 0; cell < 81; cell++) {
+            List<Integer> containing = new ArrayList<>();
+            for (int unit = 0; unit < units.size(); unit++) {
+                for (int member : units.get(unit)) {
+                    if (member == cell) {
+                        containing.add(unit);
+                    }
+                }
+            }
+            cellUnits[cell] = toArray(containing);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int index(Cell cell) {
+        return 9 * cell.getRow() + cell.getColumn();
+    }
+
+    private static int[] indices(Iterable<Cell> cells) {
+        List<Integer> indices = new ArrayList<>();
+        for (Cell cell : cells) {
+            indices.add(index(cell));
+        }
+        return toArray(indices);
+    }
+
+    /** Returns the 27 rows, columns and boxes of a standard grid. */
+    public static Units standard() {
+        List<int[]> units = new ArrayList<>();
+        for (Iterable<Cell> unit : GridElements.units()) {
+            units.add(indices(unit));
+        }
+        return new Units(units, new ArrayList<>(Collections.nCopies(units.size(), 0)));
+    }
+
+    /**
+     * Returns the rows and columns of a standard grid, along with the specified regions instead of
+     * the boxes.
+     * 
+     * @param regions a string of 81 characters, one for each cell in row-major order, such that
+     *                the cells in the same region have the same character
+     * @throws IllegalArgumentException if the string does not have 81 characters or does not
+     *                                  split the cells into 9 regions of 9 cells
+     */
+    public static Units jigsaw(String regions) {
+        if (regions.length() != 81) {
+            throw new IllegalArgumentException("Regions of incorrect size: " + regions.length());
+        }
+        List<int[]> units = new ArrayList<>();
+        int unitCount = 0;
+        for (Iterable<Cell> unit : GridElements.units()) {
+            if (unitCount++ < 18) {
+                units.add(indices(unit));
+            }
+        }
+        String seen = "";
+        for (int cell = 0; cell < 81; cell++) {
+            char region = regions.charAt(cell);
+            if (seen.indexOf(region) >= 0) {
+                continue;
+            }
+            seen += region;
+            List<Integer> members = new ArrayList<>();
+            for (int other = cell; other < 81; other++) {
+                if (regions.charAt(other) == region) {
+                    members.add(other);
+                }
+            }
+            if (members.size() != 9) {
+                throw new IllegalArgumentException(
+                        "Region " + region + " has " + members.size() + " cells");
+            }
+            units.add(toArray(members));
+        }
+        return new Units(units, new ArrayList<>(Collections.nCopies(units.size(), 0)));
+    }
+
+    /** Returns these units along with the two main diagonals, as in X-Sudoku. */
+    public Units withDiagonals() {
+        List<Cell> main = new ArrayList<>();
+        List<Cell> anti = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            main.add(Cell.of(i, i));
+            anti.add(Cell.of(i, 8 - i));
+        }
+        return with(indices(main), 0).with(indices(anti), 0);
+    }
+
+    /**
+     * Returns these units along with the four 3 x 3 windows whose top left cells are (1, 1),
+     * (1, 5), (5, 1) and (5, 5), as in Windoku.
+     */
+    public Units withWindows() {
+        Units withWindows = this;
+        for (int row : new int[] {1, 5}) {
+            for (int column : new int[] {1, 5}) {
+                List<Cell> window = new ArrayList<>();
+                for (int i = 0; i < 9; i++) {
+                    window.add(Cell.of(row + i / 3, column + i % 3));
+                }
+                withWindows = withWindows.with(indices(window), 0);
+            }
+        }
+        return withWindows;
+    }
+
+    /**
+     * Returns these units along with a cage made of the specified cells, whose digits must be
+     * distinct and add up to the specified sum, as in Killer Sudoku.
+     * 
+     * @throws IllegalArgumentException if there are no cells or more than 9, a cell is given
+     *                                  twice, or no set of distinct digits of that size adds up to
+     *                                  the sum
+     */
+    public Units withCage(int sum, Cell... cells) {
+        int[] indices = indices(Arrays.asList(cells));
+        for (int i = 0; i < indices.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (indices[i] == indices[j]) {
+                    throw new IllegalArgumentException("Cell given twice: " + cells[i]);
+                }
+            }
+        }
+        if (cells.length == 0 || cells.length > 9 || sum < 1 || sum > 45
+                || COMBINATIONS[cells.length][sum].length == 0) {
+            throw new IllegalArgumentException(
+                    "No " + cells.length + " distinct digits add up to " + sum);
+        }
+        return with(indices, sum);
+    }
+
+    private Units with(int[] unit, int sum) {
+        List<int[]> newUnits = new ArrayList<>(units);
+        List<Integer> newSums = new ArrayList<>(sums);
+        newUnits.add(unit);
+        newSums.add(sum);
+        return new Units(newUnits, newSums);
+    }
+
+    /** Returns the number of units. */
+    public int size() {
+        return units.size();
+    }
+
+    /**
+     * Determines whether the specified grid is full, the digits in each unit are distinct, and the
+     * digits in each cage add up to its sum.
+     */
+    public boolean isSolved(Grid grid) {
+        for (int unit = 0; unit < units.size(); unit++) {
+            int seen = 0;
+            int sum = 0;
+            for (int cell : units.get(unit)) {
+                Optional<Digit> d = grid.digitAt(Cell.of(cell / 9, cell % 9));
+                if (!d.isPresent() || (seen & (1 << d.get().ordinal())) != 0) {
+                    return false;
+                }
+                seen |= 1 << d.get().ordinal();
+                sum += d.get().toInt();
+            }
+            if (sums.get(unit) > 0 && sum != sums.get(unit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int[] cellsOf(int unit) {
+        return units.get(unit);
+    }
+
+    int sumOf(int unit) {
+        return sums.get(unit);
+    }
+
+    /**
+     * Returns the units that contain the specified cell, in increasing order, so that its row,
+     * column and box or region come first. The array must not be modified.
+     */
+    int[] unitsOf(int cell) {
+        return cellUnits[cell];
+    }
+
+    /**
+     * Returns the mask of the digits that belong to some set of the specified number of distinct
+     * digits that add up to the specified sum and avoid the digits in the specified mask.
+     */
+    static int digitsForSum(int size, int sum, int used) {
+        if (sum < 0 || sum > 45) {
+            return 0;
+        }
+        int digits = 0;
+        for (int combination : COMBINATIONS[size][sum]) {
+            if ((combination & used) == 0) {
+                digits |= combination;
+            }
+        }
+        return digits;
+    }
+
+}
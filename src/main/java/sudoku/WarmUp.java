@@ -0,0 +1,173 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import lombok.Getter;
+import sudoku.exceptions.GridParserException;
+
+/**
+ * Warms up the Java runtime by exercising the hot paths of the solver, so that they are compiled
+ * before latency-critical work starts. A service that takes traffic right after starting would
+ * otherwise serve its first requests with code that is interpreted or compiled at low tiers.
+ * 
+ * The warm-up runs in rounds. Each round parses the Project Euler puzzles and the hardest puzzles
+ * of the corpus embedded in the jar, solves them with every engine, checks the solutions, and
+ * solves them again in bulk. The throughput is taken to have stabilized once {@value #WINDOW}
+ * rounds in a row fail to beat the best throughput of the earlier rounds by more than
+ * {@value #TOLERANCE_PERCENT}%. Stopping at the first rounds of similar throughput would be
+ * fooled by a plateau between compilation tiers, or by a few rounds slowed down by the garbage
+ * collector. The warm-up stops once the throughput stabilizes, or else when it runs out of time or
+ * rounds.
+ */
+public final class WarmUp {
+
+    private static final int WINDOW = 10;
+    private static final int TOLERANCE_PERCENT = 5;
+
+    /** The outcome of a warm-up. */
+    public static final class Report {
+
+        /** The throughput of each round, in puzzles per second */
+        @Getter
+        private final List<Double> throughputs;
+
+        /** Whether the throughput stabilized before the warm-up ran out of time or rounds */
+        @Getter
+        private final boolean stabilized;
+
+        @Getter
+        private final Duration elapsed;
+
+        private Report(List<Double> throughputs, boolean stabilized, Duration elapsed) {
+            this.throughputs = Collections.unmodifiableList(throughputs);
+            this.stabilized = stabilized;
+            this.elapsed = elapsed;
+        }
+
+        public int getRounds() {
+            return throughputs.size();
+        }
+
+        @Override
+        public String toString() {
+            double last = throughputs.isEmpty() ? 0 : throughputs.get(throughputs.size() - 1);
+            return String.format(Locale.ROOT, "%s after %d rounds in %.3f s, at %.1f puzzles/s",
+                    stabilized ? "Stabilized" : "Not stabilized", getRounds(),
+                    elapsed.toNanos() / 1e9, last);
+        }
+
+    }
+
+    private WarmUp() {
+    }
+
+    /**
+     * Runs rounds until the throughput stabilizes or the specified time is up. At least one round
+     * is run.
+     */
+    public static Report warmUp(Duration timeLimit) {
+        return warmUp(Integer.MAX_VALUE, timeLimit.toNanos());
+    }
+
+    /**
+     * Runs rounds until the throughput stabilizes, or at most the specified number of rounds.
+     * 
+     * @throws IllegalArgumentException if the number of rounds is not positive
+     */
+    public static Report warmUp(int maxRounds) {
+        if (maxRounds <= 0) {
+            throw new IllegalArgumentException("Bad number of rounds: " + maxRounds);
+        }
+        return warmUp(maxRounds, Long.MAX_VALUE);
+    }
+
+    private static Report warmUp(int maxRounds, long timeLimitNanos) {
+        List<String> corpus = new ArrayList<>();
+        readCorpus("/puzzles", corpus);
+        readCorpus("/corpus/hardest", corpus);
+        ByteBuffer puzzles = ByteBuffer.allocateDirect(corpus.size() * BulkSolver.PUZZLE_SIZE);
+        ByteBuffer solutions = ByteBuffer.allocateDirect(corpus.size() * BulkSolver.RESULT_SIZE);
+        for (String puzzle : corpus) {
+            puzzles.put(puzzle.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        List<Double> throughputs = new ArrayList<>();
+        long start = System.nanoTime();
+        boolean stabilized = false;
+        while (!stabilized && throughputs.size() < maxRounds
+                && (throughputs.isEmpty() || System.nanoTime() - start < timeLimitNanos)) {
+            long roundStart = System.nanoTime();
+            runRound(corpus, puzzles, solutions);
+            throughputs.add(corpus.size() * 1e9 / (System.nanoTime() - roundStart));
+            stabilized = isStable(throughputs);
+        }
+        return new Report(throughputs, stabilized, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static void runRound(List<String> corpus, ByteBuffer puzzles, ByteBuffer solutions) {
+        for (String puzzle : corpus) {
+            Grid grid;
+            try {
+                grid = Grid.fromString(puzzle);
+            } catch (GridParserException e) {
+                // Doesn't happen
+                throw new AssertionError(e);
+            }
+            for (Engine engine : Engine.values()) {
+                Optional<Grid> solution =
+                        engine.solve(grid, Heuristic.fewestCandidates(), new Statistics());
+                if (!solution.isPresent() || !solution.get().isSolutionOf(grid)) {
+                    throw new AssertionError("Wrong solution of " + puzzle + " by " + engine);
+                }
+            }
+        }
+        puzzles.clear();
+        solutions.clear();
+        if (BulkSolver.solveAll(puzzles, solutions) != corpus.size()) {
+            throw new AssertionError("Wrong bulk solutions");
+        }
+    }
+
+    /**
+     * Determines whether the last rounds failed to improve on the best throughput of the earlier
+     * ones by more than the tolerance.
+     */
+    private static boolean isStable(List<Double> throughputs) {
+        int earlier = throughputs.size() - WINDOW;
+        if (earlier <= 0) {
+            return false;
+        }
+        double best = Collections.max(throughputs.subList(0, earlier));
+        double recent = Collections.max(throughputs.subList(earlier, throughputs.size()));
+        return recent <= best * (100 + TOLERANCE_PERCENT) / 100;
+    }
+
+    /** Adds the string representations of the grids in the specified resource to the list. */
+    private static void readCorpus(String resource, List<String> corpus) {
+        InputStream stream = WarmUp.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalStateException("Missing resource: " + resource);
+        }
+        try (BufferedReader input = new BufferedReader(
+                new InputStreamReader(stream, StandardCharsets.US_ASCII))) {
+            for (Optional<Grid> grid = App.readGrid(input); grid.isPresent(); grid =
+                    App.readGrid(input)) {
+                corpus.add(grid.get().toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
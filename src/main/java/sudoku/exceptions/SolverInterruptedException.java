@@ -0,0 +1,18 @@
+package sudoku.exceptions;
+
+/**
+ * Thrown by a search that is cancelled before it finishes, such as a search of a portfolio that
+ * another search has beaten, or a slice of a resumable search run on an interrupted thread. In
+ * the latter case, the interrupt status of the thread is left set.
+ */
+public final class SolverInterruptedException extends RuntimeException {
+
+    public SolverInterruptedException() {
+        super("The solver was interrupted");
+    }
+
+    /**
+     * See documentation of {@link java.io.Serializable}.
+     */
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,100 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sudoku.GridElements.Cell;
+
+/**
+ * Measures the bytes allocated by the current thread per call of the operations on the hot path of
+ * the solver, and compares them with a budget for each operation. The operations are repeated
+ * after a warm-up, so that the measurements reflect compiled code. Budgets of zero guard the paths
+ * that must not allocate at all.
+ * 
+ * The budgets are about twice the measured allocation, so that they hold across Java runtimes. If
+ * a change lowers the allocation of an operation significantly, its budget should be lowered too.
+ */
+public class AllocationBudgetTest {
+
+    private static final String PUZZLE = "003020600900305001001806400008102900700000008"
+            + "006708200002609500800203009005010300";
+
+    private static final int WARM_UP = 2000;
+
+    /** An operation whose allocation is measured. */
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    @BeforeEach
+    public void requireAllocationCounter() {
+        assumeTrue(Comparison.allocatedBytes() >= 0, "Allocation cannot be measured");
+    }
+
+    private static long bytesPerOperation(Operation operation, int repetitions) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            operation.run();
+        }
+        long before = Comparison.allocatedBytes();
+        for (int i = 0; i < repetitions; i++) {
+            operation.run();
+        }
+        return (Comparison.allocatedBytes() - before) / repetitions;
+    }
+
+    private static void assertWithinBudget(String name, long budget, long bytes) {
+        assertTrue(bytes <= budget,
+                name + " allocated " + bytes + " bytes per call, over its budget of " + budget);
+    }
+
+    @Test
+    public void parse() throws Exception {
+        assertWithinBudget("Grid.fromString", 8192,
+                bytesPerOperation(() -> Grid.fromString(PUZZLE), 1000));
+    }
+
+    @Test
+    public void consistencyChecks() throws Exception {
+        Grid grid = Grid.fromString(PUZZLE);
+        Grid solution = Solver.solve(grid).get();
+        assertWithinBudget("Grid.isConsistent", 0,
+                bytesPerOperation(() -> grid.isConsistent(), 1000));
+        assertWithinBudget("Grid.isSolved", 0,
+                bytesPerOperation(() -> solution.isSolved(), 1000));
+        assertWithinBudget("Grid.isSolutionOf", 0,
+                bytesPerOperation(() -> solution.isSolutionOf(grid), 1000));
+    }
+
+    @Test
+    public void setDigit() throws Exception {
+        AnnotatedGrid empty = new AnnotatedGrid();
+        // The allocation of the copy is measured separately and subtracted
+        long copy = bytesPerOperation(() -> new AnnotatedGrid(empty), 1000);
+        long copyAndSet = bytesPerOperation(
+                () -> new AnnotatedGrid(empty).setDigit(Cell.of(4, 4), Digit.values()[4]), 1000);
+        assertWithinBudget("AnnotatedGrid.setDigit", 1536, copyAndSet - copy);
+    }
+
+    @Test
+    public void solve() throws Exception {
+        Grid grid = Grid.fromString(PUZZLE);
+        assertWithinBudget("Solver.solve", 96 * 1024,
+                bytesPerOperation(() -> Solver.solve(grid), 200));
+    }
+
+    @Test
+    public void bitmaskSearch() throws Exception {
+        BitmaskSolver solver = new BitmaskSolver();
+        assertWithinBudget("BitmaskSolver.solve", 0, bytesPerOperation(() -> {
+            solver.clear();
+            for (int cell = 0; cell < 81; cell++) {
+                if (PUZZLE.charAt(cell) != '0') {
+                    solver.placeClue(cell, PUZZLE.charAt(cell) - '0');
+                }
+            }
+            solver.solve();
+        }, 1000));
+    }
+
+}
@@ -0,0 +1,227 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sudoku.exceptions.GridParserException;
+
+public class AppTest {
+
+    private static final String PUZZLES = "src/main/resources/puzzles";
+
+    private static final String FIRST_PUZZLE = "003020600900305001001806400008102900700000008"
+            + "006708200002609500800203009005010300";
+
+    @TempDir
+    Path tempDir;
+
+    private static String run(String... args) throws IOException {
+        StringWriter output = new StringWriter();
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            App.run(App.Options.parse(args), input, output);
+        }
+        return output.toString();
+    }
+
+    private List<String> writeShards(int shardCount) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            String file = tempDir.resolve("shard" + i).toString();
+            try (Writer writer = new FileWriter(file)) {
+                writer.write(run("--shard=" + i + "/" + shardCount));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void mergedShardsMatchSingleRun() throws IOException {
+        List<String> files = writeShards(3);
+        List<String> args = new ArrayList<>();
+        args.add("merge");
+        args.add(files.get(2));
+        args.add(files.get(0));
+        args.add(files.get(1));
+        String merged = run(args.toArray(new String[0]));
+        assertEquals(run(), merged);
+    }
+
+    @Test
+    public void mergeRequiresEveryShard() throws IOException {
+        List<String> files = writeShards(3);
+        assertThrows(IOException.class, () -> run("merge", files.get(0), files.get(1)));
+        assertThrows(IOException.class,
+                () -> run("merge", files.get(0), files.get(1), files.get(1)));
+        // Shards numbered outside the shard count
+        List<String> renumbered = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Path copy = tempDir.resolve("renumbered" + i);
+            String partial = new String(Files.readAllBytes(Paths.get(files.get(i))),
+                    StandardCharsets.UTF_8);
+            Files.write(copy, partial.replaceFirst("# shard " + i + " of 3",
+                    "# shard " + (5 + 2 * i) + " of 3").getBytes(StandardCharsets.UTF_8));
+            renumbered.add(copy.toString());
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> run("merge", renumbered.get(0), renumbered.get(1), files.get(2)));
+        assertTrue(e.getMessage().startsWith("Malformed partial result"), e.getMessage());
+
+        // Drop the output for the last input, which belongs to the second shard
+        Path second = Paths.get(files.get(1));
+        String partial = new String(Files.readAllBytes(second), StandardCharsets.UTF_8);
+        int last = partial.indexOf("# input 50\n");
+        Files.write(second, (partial.substring(0, last) + partial.substring(partial.indexOf(
+                "# total "))).getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> run("merge", files.get(0), files.get(1),
+                files.get(2)));
+    }
+
+    @Test
+    public void badShardOption() {
+        assertThrows(IllegalArgumentException.class, () -> App.Options.parse("--shard=3/3"));
+        assertThrows(IllegalArgumentException.class, () -> App.Options.parse("--shard=1"));
+    }
+
+    @Test
+    public void resumeFromTruncatedJournal() throws IOException {
+        String journal = tempDir.resolve("journal").toString();
+        String expected = run();
+        assertEquals(expected, run("--journal=" + journal, "--journal-flush=7"));
+
+        // Simulate a crash in the middle of a record
+        byte[] bytes = Files.readAllBytes(Paths.get(journal));
+        Files.write(Paths.get(journal), Arrays.copyOf(bytes, bytes.length / 3));
+
+        assertEquals(expected, run("--journal=" + journal, "--resume"));
+        String journaled = new String(Files.readAllBytes(Paths.get(journal)));
+        assertEquals(50, journaled.split("# input ").length - 1);
+
+        // Resuming on other inputs fails instead of replaying their outputs
+        String grids = String.join("\n", Files.readAllLines(Paths.get(PUZZLES)));
+        String edited = grids.replaceFirst("003020600", "003020000");
+        assertThrows(IOException.class, () -> App.run(
+                App.Options.parse("--journal=" + journal, "--resume"),
+                new BufferedReader(new StringReader(edited)), new StringWriter()));
+    }
+
+    @Test
+    public void compareEngines() throws IOException {
+        String report = tempDir.resolve("report.csv").toString();
+        String output = run("compare", "--report=" + report);
+        List<String> strategies = new Comparison(Heuristic.fewestCandidates()).strategies();
+        assertTrue(strategies.containsAll(Router.learnableConfigurations().stream()
+                .map(Object::toString).collect(Collectors.toList())));
+        assertTrue(strategies.contains(Comparison.BULK));
+        assertTrue(output.startsWith("Compared " + strategies.size()
+                + " strategies on 50 inputs: all agree\n"), output);
+        assertTrue(output.contains("leave out the first " + Comparison.WARM_UP_INPUTS
+                + " inputs"), output);
+        assertTrue(output.contains("p99.9 ms"), output);
+        assertFalse(new String(Files.readAllBytes(Paths.get(report)), StandardCharsets.UTF_8)
+                .contains("\r"));
+        List<String> lines = Files.readAllLines(Paths.get(report));
+        assertEquals(strategies.size() + 1, lines.size());
+        for (int i = 0; i < strategies.size(); i++) {
+            String[] fields = lines.get(i + 1).split(",");
+            assertEquals(lines.get(0).split(",").length, fields.length);
+            assertEquals(strategies.get(i), fields[0]);
+            assertEquals("50", fields[2]);
+            assertEquals("0", fields[3]);
+        }
+    }
+
+    @Test
+    public void solutionCache() throws IOException {
+        String cache = tempDir.resolve("cache").toString();
+        String expected = run();
+        assertEquals(expected, run("--cache=" + cache, "--cache-size=100"));
+        // The second run finds every grid in the cache
+        assertEquals(expected, run("--cache=" + cache));
+        try (SolutionCache reopened = SolutionCache.open(cache, 1)) {
+            assertEquals(SolutionCacheTest.distinct(TestsWithAllPuzzles.readGridsFromInput()),
+                    reopened.size());
+        }
+    }
+
+    @Test
+    public void validateReportsErrors() throws IOException {
+        String valid = "003020600900305001001806400008102900700000008006708200002609500800203009"
+                + "005010300";
+        String input = valid + "\n\n" + valid.substring(2) + "\n" + valid.replace('2', 'x') + "\n"
+                + valid.replace("0030", "0033") + "\n" + valid + "\n";
+        StringWriter output = new StringWriter();
+        App.run(App.Options.parse("validate"), new BufferedReader(new StringReader(input)),
+                output);
+        assertEquals("Line 3: bad-length 79\n" + "Line 4: bad-character at 4\n"
+                + "Line 5: duplicate-clue at 3\n"
+                + "Checked 5 puzzles: 2 valid, 1 bad-length, 1 bad-character, 1 duplicate-clue, "
+                + "0 inconsistent\n", output.toString());
+    }
+
+    @Test
+    public void traceWritesSteps() throws IOException {
+        String[] lines = run("trace").split("\n");
+        // The first puzzle has 32 clues and is solved without guessing
+        assertEquals("Grid 1: 49 steps, solved", lines[0]);
+        assertEquals("  place 4 at (4, 5), depth 0", lines[1]);
+        assertTrue(lines[50].startsWith("Grid 2: "));
+        assertEquals(50, Arrays.stream(lines).filter(line -> line.startsWith("Grid")).count());
+    }
+
+    @Test
+    public void marksSolvesPencilMarkGrids() throws IOException, GridParserException {
+        String marks = AnnotatedGrid.fromOrdinaryGrid(Grid.fromString(FIRST_PUZZLE))
+                .toPencilMarks();
+        StringWriter output = new StringWriter();
+        App.run(App.Options.parse("marks"), new BufferedReader(new StringReader(
+                marks + "\n\n" + marks.substring(1) + "\n")), output);
+        String solution = Solver.solve(Grid.fromString(FIRST_PUZZLE)).get().toString();
+        StringBuilder expected = new StringBuilder("Solution to input 1:\n");
+        for (int row = 0; row < 9; row++) {
+            expected.append(solution, 9 * row, 9 * row + 9).append('\n');
+        }
+        expected.append("\nInput 2 is invalid: Pencil marks of incorrect size: 323\n\n");
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    public void learnedRoutingTable() throws IOException {
+        String routing = tempDir.resolve("routing.properties").toString();
+        String grids = String.join("\n", Files.readAllLines(Paths.get(PUZZLES)).subList(0, 30));
+        StringWriter output = new StringWriter();
+        App.run(App.Options.parse("learn", "--routing=" + routing),
+                new BufferedReader(new StringReader(grids)), output);
+        String[] lines = output.toString().split("\n", 2);
+        assertTrue(lines[0].startsWith("Learned from 3 grids: "), lines[0]);
+        // The table has a line for each bucket met, and the default
+        assertEquals(String.join("\n", Files.readAllLines(Paths.get(routing))) + "\n", lines[1]);
+        assertEquals(lines[0].split(", ").length, Router.load(routing).getTable().size());
+        assertThrows(IllegalArgumentException.class, () -> App.Options.parse("learn"));
+
+        // Routing changes the engines, but not the solutions
+        try (Writer writer = new FileWriter(routing)) {
+            writer.write("default=recursive/hidden-position\ntrivial=stack/fewest-candidates\n");
+        }
+        assertEquals(run(), run("--routing=" + routing));
+    }
+
+}
@@ -1,7 +1,9 @@
 package sudoku;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import sudoku.GridElements.Cell;
@@ -48,4 +50,62 @@ public class BasicTests {
         assertEquals(gridAsString, grid.toString());
     }
 
+    @Test
+    public void parseWithoutExceptions() throws GridParserException {
+        String valid = "003020600900305001001806400008102900700000008006708200002609500800203009"
+                + "005010300";
+        ParseResult result = Grid.tryParse(valid);
+        assertTrue(result.isValid());
+        assertEquals(Grid.fromString(valid), result.getGrid().get());
+        assertEquals(-1, result.getPosition());
+
+        assertInvalid(ParseResult.Status.BAD_LENGTH, 80, valid.substring(1));
+        assertInvalid(ParseResult.Status.BAD_CHARACTER, 4, valid.replace('2', '.'));
+        String duplicate = valid.substring(0, 40) + "7" + valid.substring(41);
+        assertInvalid(ParseResult.Status.DUPLICATE_CLUE, 40, duplicate);
+        // The empty cell at index 8 sees every digit, although no clue appears twice
+        assertInvalid(ParseResult.Status.INCONSISTENT, 8, "123456780000000009"
+                + "000000000000000000000000000000000000000000000000000000000000000");
+
+        // fromString does not check the clues
+        assertFalse(Grid.fromString(duplicate).isConsistent());
+        assertThrows(GridParserException.class, () -> Grid.fromString(valid.replace('2', '.')));
+    }
+
+    @Test
+    public void pencilMarkErrors() throws GridParserException {
+        String valid = "003020600900305001001806400008102900700000008006708200002609500800203009"
+                + "005010300";
+        StringBuilder marks = new StringBuilder(valid);
+        for (int i = 0; i < 81; i++) {
+            marks.append(valid.charAt(i) == '0' ? "777" : "000");
+        }
+        String good = marks.toString();
+        assertEquals(Grid.fromString(valid).toString(),
+                AnnotatedGrid.fromPencilMarks(good).toString());
+
+        assertThrows(GridParserException.class, () -> AnnotatedGrid.fromPencilMarks(valid));
+        assertThrows(GridParserException.class,
+                () -> AnnotatedGrid.fromPencilMarks(good.replace('2', '.')));
+        // Octal digits only in the marks
+        assertThrows(GridParserException.class,
+                () -> AnnotatedGrid.fromPencilMarks(good.substring(0, 81) + "8"
+                        + good.substring(82)));
+        // The first cell is empty, the third is not
+        assertThrows(GridParserException.class,
+                () -> AnnotatedGrid.fromPencilMarks(good.substring(0, 87) + "001"
+                        + good.substring(90)));
+        assertThrows(GridParserException.class,
+                () -> AnnotatedGrid.fromPencilMarks(valid.substring(0, 40) + "7"
+                        + good.substring(41)));
+    }
+
+    private static void assertInvalid(ParseResult.Status status, int position, String str) {
+        ParseResult result = Grid.tryParse(str);
+        assertFalse(result.isValid());
+        assertFalse(result.getGrid().isPresent());
+        assertEquals(status, result.getStatus());
+        assertEquals(position, result.getPosition());
+    }
+
 }
@@ -0,0 +1,95 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sudoku.exceptions.GridParserException;
+
+public class BulkSolverTest {
+
+    private static String result(ByteBuffer solutions, int index) {
+        byte[] bytes = new byte[81];
+        for (int i = 0; i < 81; i++) {
+            bytes[i] = solutions.get(index * BulkSolver.RESULT_SIZE + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static byte status(ByteBuffer solutions, int index) {
+        return solutions.get(index * BulkSolver.RESULT_SIZE + 81);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void solveProjectEulerPuzzles(boolean direct) throws IOException {
+        List<Grid> grids = new ArrayList<>();
+        // Enough puzzles to be split among several tasks
+        for (int i = 0; i < 3; i++) {
+            grids.addAll(TestsWithAllPuzzles.readGridsFromInput());
+        }
+        ByteBuffer puzzles = direct ? ByteBuffer.allocateDirect(grids.size() * 81)
+                : ByteBuffer.allocate(grids.size() * 81);
+        for (Grid grid : grids) {
+            puzzles.put(grid.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        puzzles.flip();
+        ByteBuffer solutions = direct
+                ? ByteBuffer.allocateDirect(grids.size() * BulkSolver.RESULT_SIZE)
+                : ByteBuffer.allocate(grids.size() * BulkSolver.RESULT_SIZE);
+
+        assertEquals(grids.size(), BulkSolver.solveAll(puzzles, solutions));
+        assertEquals(puzzles.limit(), puzzles.position());
+        assertEquals(solutions.limit(), solutions.position());
+        for (int i = 0; i < grids.size(); i++) {
+            assertEquals(BulkSolver.SOLVED, status(solutions, i));
+            assertEquals(Solver.solve(grids.get(i)).get().toString(), result(solutions, i));
+        }
+    }
+
+    @Test
+    public void reportStatusOfEachPuzzle() throws IOException, GridParserException {
+        String solvable = "003020600900305001001806400008102900700000008"
+                + "006708200002609500800203009005010300";
+        String inconsistent = "11" + solvable.substring(2);
+        String unsolvable = PerformanceRegressionTest.readCorpus("unsolvable").get(0).toString();
+        String malformed = "x" + solvable.substring(1);
+        ByteBuffer puzzles = ByteBuffer.allocate(5 * 81);
+        puzzles.put((solvable + inconsistent + unsolvable + malformed)
+                .getBytes(StandardCharsets.US_ASCII));
+        // The same solvable puzzle with numbers instead of digit characters
+        for (int i = 0; i < 81; i++) {
+            puzzles.put((byte) (solvable.charAt(i) - '0'));
+        }
+        puzzles.flip();
+        ByteBuffer solutions = ByteBuffer.allocate(5 * BulkSolver.RESULT_SIZE);
+
+        assertEquals(2, BulkSolver.solveAll(puzzles, solutions));
+        String solution = Solver.solve(Grid.fromString(solvable)).get().toString();
+        assertEquals(BulkSolver.SOLVED, status(solutions, 0));
+        assertEquals(solution, result(solutions, 0));
+        assertEquals(BulkSolver.UNSOLVABLE, status(solutions, 1));
+        assertEquals(inconsistent, result(solutions, 1));
+        assertEquals(BulkSolver.UNSOLVABLE, status(solutions, 2));
+        assertEquals(unsolvable, result(solutions, 2));
+        assertEquals(BulkSolver.MALFORMED, status(solutions, 3));
+        assertEquals("0" + solvable.substring(1), result(solutions, 3));
+        assertEquals(BulkSolver.SOLVED, status(solutions, 4));
+        assertEquals(solution, result(solutions, 4));
+    }
+
+    @Test
+    public void rejectIncompleteBuffers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BulkSolver.solveAll(ByteBuffer.allocate(80), ByteBuffer.allocate(82)));
+        assertThrows(IllegalArgumentException.class,
+                () -> BulkSolver.solveAll(ByteBuffer.allocate(81), ByteBuffer.allocate(81)));
+    }
+
+}
@@ -0,0 +1,57 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sudoku.exceptions.GridParserException;
+
+public class EventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<RecordedEvent> record(String eventName, Runnable action) throws IOException {
+        Path file = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withoutThreshold();
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void solveEvent() throws IOException, GridParserException {
+        Grid grid = Grid.fromString("003020600" + "900305001" + "001806400" + "008102900"
+                + "700000008" + "006708200" + "002609500" + "800203009" + "005010300");
+        List<RecordedEvent> events = record("sudoku.Solve", () -> Solver.solve(grid));
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(-1, event.getInt("inputIndex"));
+        assertEquals(32, event.getInt("clues"));
+        assertEquals("solved", event.getString("outcome"));
+        assertEquals("fewest-candidates", event.getString("heuristic"));
+        assertTrue(event.getLong("nodes") > 0);
+    }
+
+    @Test
+    public void branchEvents() throws IOException {
+        Statistics statistics = new Statistics();
+        List<RecordedEvent> events = record("sudoku.Branch",
+                () -> Solver.solve(new Grid(), Heuristic.fewestCandidates(), statistics));
+        assertEquals(statistics.getBranchPoints(), events.size());
+    }
+
+}
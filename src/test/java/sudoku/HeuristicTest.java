@@ -0,0 +1,67 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sudoku.exceptions.GridParserException;
+
+public class HeuristicTest {
+
+    private static final String FIRST_PUZZLE = "003020600" + "900305001" + "001806400"
+            + "008102900" + "700000008" + "006708200" + "002609500" + "800203009" + "005010300";
+
+    static List<Heuristic> heuristics() {
+        return Arrays.asList(Heuristic.fewestCandidates(), Heuristic.fewestCandidatesThenDegree(),
+                Heuristic.leastConstrainingValue(), Heuristic.hiddenPosition(),
+                Heuristic.randomized(42));
+    }
+
+    @ParameterizedTest
+    @MethodSource("heuristics")
+    public void nameRoundTrip(Heuristic heuristic) {
+        assertEquals(heuristic.getName(), Heuristic.fromString(heuristic.getName()).getName());
+    }
+
+    @Test
+    public void unknownName() {
+        assertThrows(IllegalArgumentException.class, () -> Heuristic.fromString("nope"));
+        assertThrows(IllegalArgumentException.class, () -> Heuristic.fromString("random:x"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("heuristics")
+    public void solvesEmptyGrid(Heuristic heuristic) {
+        Statistics statistics = new Statistics();
+        assertTrue(Solver.solve(new Grid(), heuristic, statistics).get().isSolved());
+        assertEquals(heuristic.getName(), statistics.getHeuristic());
+        assertTrue(statistics.getNodes() > 0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("heuristics")
+    public void detectsUnsolvableGrid(Heuristic heuristic) throws GridParserException {
+        // Consistent, but 1 has no position in the first row
+        Grid grid = Grid.fromString("023456789" + "000000000" + "100000000"
+                + "000000000" + "000000000" + "000000000" + "000000000" + "000000000" + "000000000");
+        assertFalse(Solver.solve(grid, heuristic).isPresent());
+    }
+
+    @Test
+    public void randomizedIsReproducible() throws GridParserException {
+        Grid grid = Grid.fromString(FIRST_PUZZLE.substring(0, 40) + "000000000"
+                + FIRST_PUZZLE.substring(49));
+        Statistics first = new Statistics();
+        Statistics second = new Statistics();
+        Grid firstSolution = Solver.solve(grid, Heuristic.randomized(7), first).get();
+        Grid secondSolution = Solver.solve(grid, Heuristic.randomized(7), second).get();
+        assertEquals(firstSolution, secondSolution);
+        assertEquals(first.getNodes(), second.getNodes());
+    }
+
+}
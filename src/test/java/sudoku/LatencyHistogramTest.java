@@ -0,0 +1,68 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.valueAtPercentile(50));
+        assertEquals(18, histogram.valueAtPercentile(90));
+        assertEquals(20, histogram.valueAtPercentile(100));
+        assertEquals(20, histogram.getMax());
+    }
+
+    @Test
+    public void percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            double expected = percentile * 1000 * 1000;
+            double actual = histogram.valueAtPercentile(percentile);
+            assertTrue(Math.abs(actual - expected) / expected < 0.04, percentile + ": " + actual);
+        }
+        assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void largeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(random.nextLong() & Long.MAX_VALUE);
+        }
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.valueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+    }
+
+    @Test
+    public void monitorReportsDuringLongSolves() throws InterruptedException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (BatchMonitor monitor = new BatchMonitor(new PrintStream(log, true), 1)) {
+            // No solve finishes meanwhile
+            Thread.sleep(1500);
+        }
+        assertTrue(log.toString().contains("0 puzzles solved, 0.0 puzzles/s"), log.toString());
+    }
+
+}
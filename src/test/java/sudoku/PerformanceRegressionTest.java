@@ -0,0 +1,121 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Solves each category of the corpus in {@code src/main/resources/corpus} with each heuristic,
+ * and compares the number of nodes visited and the time taken with the baselines stored in
+ * {@code baselines.properties}.
+ * 
+ * Node counts are deterministic, so a count more than 10% above its baseline is reported as a
+ * regression. If a change lowers a count significantly, its baseline should be lowered too. Time
+ * budgets are generous, since they must hold on slow machines as well, but they still depend on
+ * the load of the machine, so they are tagged "timing" and only checked with the Maven profile of
+ * the same name: {@code mvn test -Ptiming}.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+public class PerformanceRegressionTest {
+
+    private static final double NODE_TOLERANCE = 1.10;
+
+    // The names of the heuristics with baselines, one of them randomized with a fixed seed
+    private static final String[] HEURISTICS = {"fewest-candidates", "fewest-candidates-degree",
+        "least-constraining-value", "hidden-position", "random:42"};
+
+    private final Properties baselines = new Properties();
+
+    static Stream<Arguments> categoriesAndHeuristics() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (String category : new String[] {"seventeen-clue", "hardest", "near-empty",
+                "unsolvable"}) {
+            for (String heuristic : HEURISTICS) {
+                arguments.add(Arguments.of(category, heuristic));
+            }
+        }
+        return arguments.stream();
+    }
+
+    static List<Grid> readCorpus(String category) throws IOException {
+        List<Grid> grids = new ArrayList<>();
+        try (BufferedReader input =
+                new BufferedReader(new FileReader("src/main/resources/corpus/" + category))) {
+            for (Optional<Grid> grid = App.readGrid(input); grid.isPresent(); grid =
+                    App.readGrid(input)) {
+                grids.add(grid.get());
+            }
+        }
+        return grids;
+    }
+
+    @BeforeAll
+    public void beforeAll() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/baselines.properties")) {
+            baselines.load(input);
+        }
+    }
+
+    private long baseline(String key, long measured) {
+        String value = baselines.getProperty(key);
+        if (value == null) {
+            fail("No baseline for " + key + ", measured " + measured);
+        }
+        return Long.parseLong(value);
+    }
+
+    /** Solves every grid of the category, checking the results, and returns the statistics. */
+    private static Statistics solveCategory(String category, String heuristicName)
+            throws IOException {
+        // Randomized heuristics keep their state, so each run needs a new instance
+        Heuristic heuristic = Heuristic.fromString(heuristicName);
+        Statistics statistics = new Statistics();
+        for (Grid grid : readCorpus(category)) {
+            Optional<Grid> solved = Solver.solve(grid, heuristic, statistics);
+            if (category.equals("unsolvable")) {
+                assertFalse(solved.isPresent());
+            } else {
+                assertTrue(solved.isPresent() && solved.get().isSolutionOf(grid));
+            }
+        }
+        return statistics;
+    }
+
+    @ParameterizedTest(name = "{0}, {1}")
+    @MethodSource("categoriesAndHeuristics")
+    public void noRegression(String category, String heuristicName) throws IOException {
+        Statistics statistics = solveCategory(category, heuristicName);
+        long nodes = baseline(category + "." + heuristicName + ".nodes", statistics.getNodes());
+        assertTrue(statistics.getNodes() <= nodes * NODE_TOLERANCE,
+                "Visited " + statistics.getNodes() + " nodes, baseline is " + nodes);
+    }
+
+    @Tag("timing")
+    @ParameterizedTest(name = "{0}, {1}")
+    @MethodSource("categoriesAndHeuristics")
+    public void withinTimeBudget(String category, String heuristicName) throws IOException {
+        long start = System.nanoTime();
+        solveCategory(category, heuristicName);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long budget = baseline(category + ".millis", millis);
+        assertTrue(millis <= budget, "Took " + millis + " ms, budget is " + budget + " ms");
+    }
+
+}
@@ -0,0 +1,87 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sudoku.exceptions.SolverInterruptedException;
+
+public class PortfolioTest {
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    public void enginesSolveTheHardestPuzzles(Engine engine) throws IOException {
+        for (Grid grid : PerformanceRegressionTest.readCorpus("hardest")) {
+            Statistics statistics = new Statistics();
+            assertTrue(engine.solve(grid, Heuristic.fewestCandidates(), statistics).get()
+                    .isSolutionOf(grid));
+            assertTrue(statistics.getNodes() > 0);
+        }
+        for (Grid grid : PerformanceRegressionTest.readCorpus("unsolvable")) {
+            assertFalse(engine.solve(grid, Heuristic.hiddenPosition(), new Statistics())
+                    .isPresent());
+        }
+    }
+
+    @Test
+    public void portfolioReportsTheWinner() throws IOException, InterruptedException {
+        try (Portfolio portfolio = new Portfolio(Portfolio.defaultConfigurations(6))) {
+            for (Grid grid : PerformanceRegressionTest.readCorpus("seventeen-clue")) {
+                Portfolio.Result result = portfolio.solve(grid);
+                assertTrue(result.getSolution().get().isSolutionOf(grid));
+                assertTrue(portfolio.getConfigurations().contains(result.getWinner()));
+                assertEquals(result.getWinner().getHeuristic(),
+                        result.getStatistics().getHeuristic());
+            }
+            for (Grid grid : PerformanceRegressionTest.readCorpus("unsolvable")) {
+                assertFalse(portfolio.solve(grid).getSolution().isPresent());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    public void cancelledSolve(Engine engine) {
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        assertThrows(SolverInterruptedException.class, () -> engine.solve(new Grid(),
+                Heuristic.fewestCandidates(), new Statistics(), cancellation));
+    }
+
+    @Test
+    public void interruptsDoNotStopPlainSolves() {
+        Thread.currentThread().interrupt();
+        try {
+            assertTrue(Solver.solve(new Grid()).isPresent());
+            for (Engine engine : Engine.values()) {
+                assertTrue(engine.solve(new Grid(), Heuristic.fewestCandidates(),
+                        new Statistics()).isPresent());
+            }
+            assertEquals(1, Solver.countSolutions(Solver.solve(new Grid()).get(), 2));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void configurationNames() {
+        Portfolio.Configuration configuration =
+                Portfolio.Configuration.of(Engine.fromString("stack"), "random:3");
+        assertEquals("stack/random:3", configuration.toString());
+        assertThrows(IllegalArgumentException.class,
+                () -> Portfolio.Configuration.of(Engine.STACK, "nope"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Portfolio(Arrays.<Portfolio.Configuration>asList()));
+        assertEquals(1, Portfolio.defaultConfigurations(1).size());
+        assertEquals(9, Portfolio.defaultConfigurations(9).size());
+        assertThrows(IllegalArgumentException.class, () -> Portfolio.defaultConfigurations(0));
+        assertThrows(IllegalArgumentException.class, () -> Portfolio.defaultConfigurations(-1));
+    }
+
+}
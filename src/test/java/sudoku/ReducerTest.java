@@ -0,0 +1,70 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import sudoku.GridElements.Cell;
+import sudoku.exceptions.GridParserException;
+
+public class ReducerTest {
+
+    private static long countSolutions(Grid grid) {
+        return Solver.solutions(grid).limit(2).count();
+    }
+
+    private static void assertMinimal(Grid puzzle, Grid reduced) throws GridParserException {
+        Grid solution = Solver.solve(puzzle).get();
+        assertEquals(1, countSolutions(reduced));
+        assertTrue(solution.isSolutionOf(reduced));
+        String reducedAsString = reduced.toString();
+        for (Cell cell : reduced.nonEmptyCells()) {
+            assertEquals(puzzle.digitAt(cell), reduced.digitAt(cell));
+            int index = 9 * cell.getRow() + cell.getColumn();
+            Grid withoutClue = Grid.fromString(reducedAsString.substring(0, index) + "0"
+                    + reducedAsString.substring(index + 1));
+            assertEquals(2, countSolutions(withoutClue), "Clue at " + cell + " is not necessary");
+        }
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void minimizeProjectEulerPuzzles() throws IOException, GridParserException {
+        int count = 0;
+        for (Grid puzzle : TestsWithAllPuzzles.readGridsFromInput()) {
+            if (count++ == 5) {
+                break;
+            }
+            assertMinimal(puzzle, Reducer.minimize(puzzle));
+        }
+    }
+
+    @Test
+    public void blankingKeepsCandidatesUpToDate() throws IOException, GridParserException {
+        for (Grid puzzle : PerformanceRegressionTest.readCorpus("hardest")) {
+            AnnotatedGrid grid = AnnotatedGrid.fromOrdinaryGrid(puzzle);
+            String blanked = puzzle.toString();
+            for (Cell cell : puzzle.nonEmptyCells()) {
+                grid = grid.withBlank(cell);
+                int index = 9 * cell.getRow() + cell.getColumn();
+                blanked = blanked.substring(0, index) + "0" + blanked.substring(index + 1);
+                assertEquals(AnnotatedGrid.fromOrdinaryGrid(Grid.fromString(blanked)), grid);
+            }
+        }
+    }
+
+    @Test
+    public void minimalPuzzleIsUnchanged() throws IOException {
+        Grid puzzle = PerformanceRegressionTest.readCorpus("seventeen-clue").get(0);
+        assertEquals(puzzle, Reducer.minimize(puzzle));
+    }
+
+    @Test
+    public void requiresUniqueSolution() {
+        assertThrows(IllegalArgumentException.class, () -> Reducer.minimize(new Grid()));
+    }
+
+}
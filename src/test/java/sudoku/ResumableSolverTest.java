@@ -0,0 +1,178 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import sudoku.exceptions.GridParserException;
+import sudoku.exceptions.SolverInterruptedException;
+
+public class ResumableSolverTest {
+
+    // Arto Inkala's puzzle of 2012, which takes hundreds of nodes
+    private static final String HARD = "800000000003600000070090200050007000000045700000100030"
+            + "001000068008500010090000400";
+
+    // The first Project Euler puzzle, which takes a single node
+    private static final String EASY = "003020600900305001001806400008102900700000008"
+            + "006708200002609500800203009005010300";
+
+    @Test
+    public void stepsAgreeWithStackEngine() throws GridParserException {
+        Grid grid = Grid.fromString(HARD);
+        Statistics statistics = new Statistics();
+        Optional<Grid> expected =
+                Engine.STACK.solve(grid, Heuristic.fewestCandidates(), statistics);
+
+        ResumableSolver search = new ResumableSolver(grid, Heuristic.fewestCandidates());
+        assertEquals(ResumableSolver.State.RUNNING, search.step(1));
+        assertEquals(1, search.getStatistics().getNodes());
+        assertEquals(Optional.empty(), search.getSolution());
+        int slices = 1;
+        while (search.step(10) == ResumableSolver.State.RUNNING) {
+            ++slices;
+        }
+        assertTrue(slices > 10);
+        assertEquals(ResumableSolver.State.SOLVED, search.getState());
+        assertEquals(expected, search.getSolution());
+        assertEquals(statistics.getNodes(), search.getStatistics().getNodes());
+        assertEquals(ResumableSolver.State.SOLVED, search.step(10));
+        assertThrows(IllegalArgumentException.class, () -> search.step(0));
+    }
+
+    @Test
+    public void detectsUnsolvableGrids() throws GridParserException {
+        // The last cell of the first row sees every digit
+        ResumableSolver search = new ResumableSolver(Grid.fromString("123456780" + "000000009"
+                + "000000000000000000000000000000000000000000000000000000000000000"),
+                Heuristic.fewestCandidates());
+        assertEquals(ResumableSolver.State.UNSOLVABLE, search.step(Long.MAX_VALUE));
+        assertEquals(Optional.empty(), search.getSolution());
+    }
+
+    @Test
+    public void resumesOnOtherThreads() throws Exception {
+        Grid grid = Grid.fromString(HARD);
+        ResumableSolver search = new ResumableSolver(grid, Heuristic.fewestCandidates());
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; search.getState() == ResumableSolver.State.RUNNING; i++) {
+                (i % 2 == 0 ? first : second).submit(() -> search.step(25)).get();
+            }
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+        assertEquals(Solver.solve(grid), search.getSolution());
+
+        // An interrupted slice loses no work
+        ResumableSolver interrupted = new ResumableSolver(grid, Heuristic.fewestCandidates());
+        interrupted.step(5);
+        Thread.currentThread().interrupt();
+        assertThrows(SolverInterruptedException.class, () -> interrupted.step(5));
+        assertTrue(Thread.interrupted());
+        interrupted.step(Long.MAX_VALUE);
+        assertEquals(Solver.solve(grid), interrupted.getSolution());
+    }
+
+    /**
+     * Returns a heuristic that branches on a cell with the fewest candidates, but waits for the
+     * specified latch whenever it is called from a thread other than the current one.
+     */
+    private static Heuristic waitingFor(CountDownLatch latch) {
+        Thread current = Thread.currentThread();
+        Heuristic fewestCandidates = Heuristic.fewestCandidates();
+        return new Heuristic() {
+
+            @Override
+            public String getName() {
+                return fewestCandidates.getName();
+            }
+
+            @Override
+            public List<Placement> branch(AnnotatedGrid grid) {
+                if (Thread.currentThread() != current) {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return fewestCandidates.branch(grid);
+            }
+
+        };
+    }
+
+    @Test
+    public void easyGridsOvertakeHardOnes() throws Exception {
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch submitted = new CountDownLatch(1);
+        try (SolveScheduler scheduler = new SolveScheduler(1, 10)) {
+            // The first slice of the hard grid holds the only thread until both grids are queued
+            CompletableFuture<Optional<Grid>> hard =
+                    scheduler.submit(Grid.fromString(HARD), waitingFor(submitted));
+            hard.thenRun(() -> finished.add("hard"));
+            CompletableFuture<Optional<Grid>> easy =
+                    scheduler.submit(Grid.fromString(EASY), Heuristic.fewestCandidates());
+            easy.thenRun(() -> finished.add("easy"));
+            submitted.countDown();
+            assertEquals(Solver.solve(Grid.fromString(EASY)), easy.get());
+            assertEquals(Solver.solve(Grid.fromString(HARD)), hard.get());
+        }
+        assertEquals("[easy, hard]", finished.toString());
+    }
+
+    @Test
+    public void errorsCompleteTheFuture() throws Exception {
+        Heuristic failing = new Heuristic() {
+
+            @Override
+            public String getName() {
+                return "failing";
+            }
+
+            @Override
+            public List<Placement> branch(AnnotatedGrid grid) {
+                throw new StackOverflowError();
+            }
+
+        };
+        try (SolveScheduler scheduler = new SolveScheduler(1, 10)) {
+            CompletableFuture<Optional<Grid>> search =
+                    scheduler.submit(Grid.fromString(HARD), failing);
+            ExecutionException e = assertThrows(ExecutionException.class, search::get);
+            assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    @Test
+    public void closingCancelsSearches() throws Exception {
+        CompletableFuture<Optional<Grid>> search;
+        try (SolveScheduler scheduler = new SolveScheduler(1, 1)) {
+            search = scheduler.submit(new Grid(), Heuristic.fewestCandidates());
+            CompletableFuture<Optional<Grid>> cancelled =
+                    scheduler.submit(Grid.fromString(HARD), Heuristic.fewestCandidates());
+            cancelled.cancel(false);
+            assertTrue(cancelled.isCancelled());
+        }
+        try {
+            search.get();
+        } catch (CancellationException | ExecutionException e) {
+            // Closed before the search finished
+        }
+        assertTrue(search.isDone());
+    }
+
+}
@@ -0,0 +1,120 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import sudoku.Portfolio.Configuration;
+import sudoku.exceptions.GridParserException;
+
+public class RouterTest {
+
+    @Test
+    public void featuresOfFirstPuzzle() throws GridParserException {
+        Router.Features features = Router.Features.of(Grid.fromString(
+                "003020600900305001001806400008102900700000008"
+                        + "006708200002609500800203009005010300"));
+        assertEquals(32, features.getClues());
+        int emptyCells = 0;
+        for (int count = 0; count <= 9; count++) {
+            emptyCells += features.cellsWithCandidates(count);
+        }
+        assertEquals(49, emptyCells);
+        // Naked singles alone solve the puzzle
+        assertEquals(49, features.getSingles());
+        assertFalse(features.isContradiction());
+        assertEquals(Router.TRIVIAL, features.bucket());
+
+        Router.Features empty = Router.Features.of(new Grid());
+        assertEquals(81, empty.cellsWithCandidates(9));
+        assertEquals(0, empty.getFillSkew());
+        assertEquals("open3.even.loose", empty.bucket());
+        assertTrue(Router.buckets().contains(empty.bucket()));
+    }
+
+    @Test
+    public void conflictingCluesAreTrivial() throws GridParserException {
+        Grid grid = Grid.fromString("110000000" + "000000000".repeat(8));
+        Router.Features features = Router.Features.of(grid);
+        assertTrue(features.isContradiction());
+        assertEquals(Router.TRIVIAL, features.bucket());
+        Router router = new Router(
+                Collections.singletonMap(Router.TRIVIAL, Router.fixed().getFallback()),
+                Router.fixed().getFallback());
+        assertFalse(router.solve(grid, new Statistics()).isPresent());
+    }
+
+    @Test
+    public void routedSolvesAgree() throws IOException {
+        List<Configuration> configurations = Router.learnableConfigurations();
+        Map<String, Configuration> table = new HashMap<>();
+        for (int i = 0; i < Router.buckets().size(); i++) {
+            table.put(Router.buckets().get(i), configurations.get(i % configurations.size()));
+        }
+        Router router = new Router(table, Router.fixed().getFallback());
+        List<Grid> grids = new ArrayList<>(TestsWithAllPuzzles.readGridsFromInput());
+        grids.addAll(PerformanceRegressionTest.readCorpus("hardest"));
+        grids.addAll(PerformanceRegressionTest.readCorpus("unsolvable"));
+        for (Grid grid : grids) {
+            assertEquals(Solver.solve(grid), Solver.solve(grid, router));
+            assertEquals(Solver.solve(grid), Solver.solve(grid, Router.fixed()));
+        }
+    }
+
+    @Test
+    public void learnsAndSavesTable() throws IOException {
+        List<Grid> grids = new ArrayList<>(TestsWithAllPuzzles.readGridsFromInput().subList(0, 3));
+        grids.addAll(PerformanceRegressionTest.readCorpus("hardest").subList(0, 2));
+        List<Configuration> configurations = new ArrayList<>();
+        configurations.add(Configuration.of(Engine.RECURSIVE, "hidden-position"));
+        configurations.add(Configuration.of(Engine.BITMASK, "fewest-candidates"));
+        Router router = Router.learn(grids, configurations, 1);
+
+        Set<String> buckets = new HashSet<>();
+        for (Grid grid : grids) {
+            buckets.add(Router.Features.of(grid).bucket());
+        }
+        assertEquals(buckets, router.getTable().keySet());
+        assertTrue(configurations.containsAll(router.getTable().values()));
+        assertTrue(configurations.contains(router.getFallback()));
+
+        StringWriter file = new StringWriter();
+        router.write(file);
+        Router read = Router.read(new StringReader(file.toString()), "table");
+        assertEquals(router.getTable(), read.getTable());
+        assertEquals(router.getFallback(), read.getFallback());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Router.learn(Collections.<Grid>emptyList(), configurations, 1));
+        assertThrows(IllegalArgumentException.class, () -> Router.learn(grids, configurations, 0));
+    }
+
+    @Test
+    public void rejectsBadTables() throws IOException {
+        Router read = Router.read(new StringReader("# Comment\ntrivial = stack/hidden-position\n"),
+                "table");
+        assertEquals(Configuration.of(Engine.STACK, "hidden-position"), read.route("trivial"));
+        assertEquals(Router.fixed().getFallback(), read.route("open1.even.loose"));
+
+        for (String line : new String[] {"open9.even.loose=bitmask/fewest-candidates",
+                "trivial=bitmask", "trivial=warp/fewest-candidates", "default=stack/fastest"}) {
+            assertThrows(IOException.class, () -> Router.read(new StringReader(line), "table"),
+                    line);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Router(
+                Collections.singletonMap("bogus", Router.fixed().getFallback()),
+                Router.fixed().getFallback()));
+    }
+
+}
@@ -0,0 +1,203 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SolutionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String path() {
+        return tempDir.resolve("cache").toString();
+    }
+
+    /** Returns the number of distinct grids in the specified list. */
+    static int distinct(List<Grid> grids) {
+        return new HashSet<>(grids).size();
+    }
+
+    @Test
+    public void entriesPersistAcrossRuns() throws IOException {
+        List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+        Grid unsolvable = PerformanceRegressionTest.readCorpus("unsolvable").get(0);
+        try (SolutionCache cache = SolutionCache.open(path(), 256)) {
+            assertFalse(cache.lookup(grids.get(0).toString()).isPresent());
+            for (Grid grid : grids) {
+                assertTrue(cache.add(grid.toString(), Solver.solve(grid)));
+            }
+            assertTrue(cache.add(unsolvable.toString(), Optional.empty()));
+            assertEquals(distinct(grids) + 1, cache.size());
+        }
+        assertEquals(SolutionCache.HEADER_SIZE + 256 * SolutionCache.RECORD_SIZE,
+                Files.size(tempDir.resolve("cache")));
+        // The capacity of an existing cache is kept
+        try (SolutionCache cache = SolutionCache.open(path(), 1)) {
+            assertEquals(256, cache.getCapacity());
+            assertEquals(distinct(grids) + 1, cache.size());
+            for (Grid grid : grids) {
+                assertEquals(Solver.solve(grid), cache.lookup(grid.toString()).get());
+            }
+            assertEquals(Optional.of(Optional.empty()), cache.lookup(unsolvable.toString()));
+        }
+    }
+
+    @Test
+    public void dropsEntriesWhenFull() throws IOException {
+        List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+        try (SolutionCache cache = SolutionCache.open(path(), 8)) {
+            for (int i = 0; i < 6; i++) {
+                assertTrue(cache.add(grids.get(i).toString(), Solver.solve(grids.get(i))));
+            }
+            assertFalse(cache.add(grids.get(6).toString(), Solver.solve(grids.get(6))));
+            assertFalse(cache.lookup(grids.get(6).toString()).isPresent());
+            // Entries already in the cache can still be added again
+            assertTrue(cache.add(grids.get(0).toString(), Solver.solve(grids.get(0))));
+            assertEquals(6, cache.size());
+        }
+    }
+
+    @Test
+    public void corruptRecordIsMissing() throws IOException {
+        Grid grid = TestsWithAllPuzzles.readGridsFromInput().get(0);
+        try (SolutionCache cache = SolutionCache.open(path(), 1)) {
+            cache.add(grid.toString(), Solver.solve(grid));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path(), "rw")) {
+            file.seek(SolutionCache.HEADER_SIZE + 50);
+            file.write(file.read() ^ 1);
+        }
+        try (SolutionCache cache = SolutionCache.open(path(), 1)) {
+            assertFalse(cache.lookup(grid.toString()).isPresent());
+            // The corrupt record is reused rather than skipped
+            assertTrue(cache.add(grid.toString(), Solver.solve(grid)));
+            assertEquals(Optional.of(Solver.solve(grid)), cache.lookup(grid.toString()));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void staleSizeIsRecounted() throws IOException {
+        List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+        try (SolutionCache cache = SolutionCache.open(path(), 16)) {
+            for (int i = 0; i < 3; i++) {
+                cache.add(grids.get(i).toString(), Solver.solve(grids.get(i)));
+            }
+        }
+        // As if the process had crashed before writing the size to disk
+        try (RandomAccessFile file = new RandomAccessFile(path(), "rw")) {
+            file.seek(12);
+            file.writeInt(0);
+        }
+        try (SolutionCache cache = SolutionCache.open(path(), 16)) {
+            assertEquals(3, cache.size());
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(tempDir.resolve("other"), "Not a cache".getBytes());
+        assertThrows(IOException.class,
+                () -> SolutionCache.open(tempDir.resolve("other").toString(), 16));
+        assertThrows(IllegalArgumentException.class, () -> SolutionCache.open(path(), 0));
+    }
+
+    @Test
+    public void secondOpenIsReadOnly() throws IOException {
+        List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+        try (SolutionCache writer = SolutionCache.open(path(), 16)) {
+            assertFalse(writer.isReadOnly());
+            writer.add(grids.get(0).toString(), Solver.solve(grids.get(0)));
+            try (SolutionCache reader = SolutionCache.open(path(), 16)) {
+                assertTrue(reader.isReadOnly());
+                assertEquals(1, reader.size());
+                assertFalse(reader.add(grids.get(1).toString(), Solver.solve(grids.get(1))));
+                // Entries added by the writer are seen by the reader
+                writer.add(grids.get(1).toString(), Solver.solve(grids.get(1)));
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(Optional.of(Solver.solve(grids.get(i))),
+                            reader.lookup(grids.get(i).toString()));
+                }
+            }
+        }
+        // The lock is released with the writer
+        try (SolutionCache cache = SolutionCache.open(path(), 16)) {
+            assertFalse(cache.isReadOnly());
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    public void cacheBeingCreatedIsEmpty() throws IOException {
+        Grid grid = TestsWithAllPuzzles.readGridsFromInput().get(0);
+        // As if another process had just created the file, and not yet written its header
+        try (FileChannel creator = FileChannel.open(tempDir.resolve("cache"),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+                FileLock lock = creator.lock();
+                SolutionCache cache = SolutionCache.open(path(), 16)) {
+            assertTrue(cache.isReadOnly());
+            assertEquals(0, cache.size());
+            assertFalse(cache.lookup(grid.toString()).isPresent());
+            assertFalse(cache.add(grid.toString(), Solver.solve(grid)));
+        }
+    }
+
+    @Test
+    public void readOnlyFile() throws IOException {
+        Grid grid = TestsWithAllPuzzles.readGridsFromInput().get(0);
+        try (SolutionCache cache = SolutionCache.open(path(), 16)) {
+            cache.add(grid.toString(), Solver.solve(grid));
+        }
+        assertTrue(tempDir.resolve("cache").toFile().setWritable(false));
+        // Permissions do not apply to the superuser
+        assumeFalse(Files.isWritable(tempDir.resolve("cache")));
+        try (SolutionCache cache = SolutionCache.open(path(), 16)) {
+            assertTrue(cache.isReadOnly());
+            assertEquals(Optional.of(Solver.solve(grid)), cache.lookup(grid.toString()));
+        }
+    }
+
+    @Test
+    public void concurrentLookups() throws IOException {
+        List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+        try (SolutionCache cache = SolutionCache.open(path(), 128)) {
+            AtomicBoolean adding = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                for (Grid grid : grids) {
+                    cache.add(grid.toString(), Solver.solve(grid));
+                }
+                adding.set(false);
+            });
+            writer.start();
+            IntStream.range(0, 4).parallel().forEach(reader -> {
+                do {
+                    for (Grid grid : grids) {
+                        Optional<Optional<Grid>> cached = cache.lookup(grid.toString());
+                        if (cached.isPresent()) {
+                            assertTrue(cached.get().get().isSolutionOf(grid));
+                        }
+                    }
+                } while (adding.get());
+            });
+            assertEquals(distinct(grids), cache.size());
+        }
+    }
+
+}
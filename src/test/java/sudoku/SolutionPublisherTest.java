@@ -0,0 +1,199 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class SolutionPublisherTest {
+
+    private static final String PUZZLES = "src/main/resources/puzzles";
+
+    /** Records the signals it receives, and requests results as told by its subclasses. */
+    private static class RecordingSubscriber implements SolutionPublisher.Subscriber {
+
+        final List<SolutionPublisher.Result> results = new ArrayList<>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        SolutionPublisher.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(SolutionPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(SolutionPublisher.Result result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+
+    }
+
+    @Test
+    public void readsOnlyWhatIsRequested() throws IOException {
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            new SolutionPublisher(input, Heuristic.fewestCandidates()).subscribe(subscriber);
+            assertTrue(subscriber.results.isEmpty());
+            subscriber.subscription.request(3);
+            assertEquals(3, subscriber.results.size());
+            for (int i = 0; i < 3; i++) {
+                SolutionPublisher.Result result = subscriber.results.get(i);
+                assertEquals(i + 1, result.getInputIndex());
+                assertTrue(result.getSolution().get().isSolutionOf(result.getPuzzle()));
+            }
+            // The fourth grid has not been read
+            List<Grid> grids = TestsWithAllPuzzles.readGridsFromInput();
+            assertEquals(grids.get(3), App.readGrid(input).get());
+            assertTrue(!subscriber.completed && subscriber.error == null);
+        }
+    }
+
+    @Test
+    public void requestsFromOnNext() throws IOException {
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            RecordingSubscriber subscriber = new RecordingSubscriber() {
+
+                int depth = 0;
+                int maxDepth = 0;
+
+                @Override
+                public void onNext(SolutionPublisher.Result result) {
+                    super.onNext(result);
+                    maxDepth = Math.max(maxDepth, ++depth);
+                    subscription.request(1);
+                    --depth;
+                    assertEquals(1, maxDepth);
+                }
+
+            };
+            new SolutionPublisher(input, Heuristic.fewestCandidates()).subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertEquals(50, subscriber.results.size());
+            assertTrue(subscriber.completed);
+            assertNull(subscriber.error);
+        }
+    }
+
+    @Test
+    public void cancel() throws IOException {
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            RecordingSubscriber subscriber = new RecordingSubscriber() {
+
+                @Override
+                public void onNext(SolutionPublisher.Result result) {
+                    super.onNext(result);
+                    if (results.size() == 5) {
+                        subscription.cancel();
+                    }
+                }
+
+            };
+            new SolutionPublisher(input, Heuristic.fewestCandidates()).subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertEquals(5, subscriber.results.size());
+            assertTrue(!subscriber.completed && subscriber.error == null);
+        }
+    }
+
+    @Test
+    public void throwingSubscriberIsCancelled() throws IOException {
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            RecordingSubscriber subscriber = new RecordingSubscriber() {
+
+                @Override
+                public void onNext(SolutionPublisher.Result result) {
+                    super.onNext(result);
+                    throw new IllegalStateException("Subscriber bug");
+                }
+
+            };
+            new SolutionPublisher(input, Heuristic.fewestCandidates()).subscribe(subscriber);
+            subscriber.subscription.request(3);
+            subscriber.subscription.request(3);
+            assertEquals(1, subscriber.results.size());
+            assertTrue(!subscriber.completed && subscriber.error == null);
+            // The second grid has not been read
+            assertEquals(TestsWithAllPuzzles.readGridsFromInput().get(1),
+                    App.readGrid(input).get());
+        }
+    }
+
+    @Test
+    public void errors() throws IOException {
+        Reader failing = new Reader() {
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Disk on fire");
+            }
+
+            @Override
+            public void close() {
+            }
+
+        };
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new SolutionPublisher(new BufferedReader(failing), Heuristic.fewestCandidates())
+                .subscribe(subscriber);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.error instanceof IOException);
+
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            SolutionPublisher publisher =
+                    new SolutionPublisher(input, Heuristic.fewestCandidates());
+            RecordingSubscriber first = new RecordingSubscriber();
+            publisher.subscribe(first);
+            first.subscription.request(0);
+            assertTrue(first.error instanceof IllegalArgumentException);
+            assertTrue(first.results.isEmpty());
+
+            RecordingSubscriber second = new RecordingSubscriber();
+            publisher.subscribe(second);
+            assertTrue(second.error instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void solvesOnExecutor() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (BufferedReader input = new BufferedReader(new FileReader(PUZZLES))) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            new SolutionPublisher(input, Heuristic.fewestCandidates(), executor)
+                    .subscribe(subscriber);
+            for (int i = 0; i < 60; i++) {
+                subscriber.subscription.request(1);
+            }
+            assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+            assertEquals(50, subscriber.results.size());
+            assertTrue(subscriber.completed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
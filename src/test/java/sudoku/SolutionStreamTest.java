@@ -0,0 +1,78 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import sudoku.exceptions.GridParserException;
+
+public class SolutionStreamTest {
+
+    // The first Project Euler puzzle, with its first row blanked out. It has 37 solutions.
+    private static final String AMBIGUOUS = "000000000" + "900305001" + "001806400"
+            + "008102900" + "700000008" + "006708200" + "002609500" + "800203009" + "005010300";
+
+    @Test
+    public void uniqueSolution() throws GridParserException {
+        Grid grid = Grid.fromString("003020600" + "900305001" + "001806400" + "008102900"
+                + "700000008" + "006708200" + "002609500" + "800203009" + "005010300");
+        List<Grid> solutions = Solver.solutions(grid).collect(Collectors.toList());
+        assertEquals(1, solutions.size());
+        assertEquals(Solver.solve(grid).get(), solutions.get(0));
+    }
+
+    @Test
+    public void splittingASolvedNodeDoesNotExpandItAgain() throws GridParserException {
+        // Naked singles solve this puzzle in a single node
+        Grid grid = Grid.fromString("003020600" + "900305001" + "001806400" + "008102900"
+                + "700000008" + "006708200" + "002609500" + "800203009" + "005010300");
+        Statistics statistics = new Statistics();
+        SolutionSpliterator solutions = new SolutionSpliterator(
+                AnnotatedGrid.fromOrdinaryGrid(grid), Heuristic.fewestCandidates(), statistics);
+        assertNull(solutions.trySplit());
+        assertTrue(solutions.tryAdvance(solution -> assertEquals(Solver.solve(grid).get(),
+                solution)));
+        assertFalse(solutions.tryAdvance(solution -> fail()));
+        assertEquals(1, statistics.getNodes());
+    }
+
+    @Test
+    public void allSolutionsAreDistinctAndValid() throws GridParserException {
+        Grid grid = Grid.fromString(AMBIGUOUS);
+        List<Grid> solutions = Solver.solutions(grid).collect(Collectors.toList());
+        assertEquals(37, solutions.size());
+        assertEquals(37, solutions.stream().distinct().count());
+        assertTrue(solutions.stream().allMatch(solution -> solution.isSolutionOf(grid)));
+    }
+
+    @Test
+    public void parallelStreamFindsTheSameSolutions() throws GridParserException {
+        Grid grid = Grid.fromString(AMBIGUOUS);
+        Set<Grid> sequential = Solver.solutions(grid).collect(Collectors.toSet());
+        Set<Grid> parallel = Solver.solutions(grid).parallel().collect(Collectors.toSet());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void noSolutions() throws GridParserException {
+        Grid grid = Grid.fromString("110000000" + AMBIGUOUS.substring(9));
+        assertEquals(0, Solver.solutions(grid).count());
+        assertEquals(0, Solver.solutions(grid).parallel().count());
+    }
+
+    @Test
+    @Timeout(value = 1, unit = TimeUnit.SECONDS)
+    public void stopsEarlyOnEmptyGrid() {
+        assertEquals(100, Solver.solutions(new Grid()).limit(100).count());
+        assertEquals(100, Solver.solutions(new Grid()).parallel().limit(100).count());
+        assertTrue(Solver.solutions(new Grid()).parallel().findAny().get().isSolved());
+    }
+
+}
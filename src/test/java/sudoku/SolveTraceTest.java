@@ -0,0 +1,72 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import sudoku.GridElements.Cell;
+import sudoku.exceptions.GridParserException;
+
+public class SolveTraceTest {
+
+    // Arto Inkala's puzzle of 2012, which takes many guesses
+    private static final String HARD = "800000000003600000070090200050007000000045700000100030"
+            + "001000068008500010090000400";
+
+    @Test
+    public void replaysSearch() throws GridParserException {
+        Grid puzzle = Grid.fromString(HARD);
+        SolveTrace trace = new SolveTrace(1 << 16);
+        Optional<Grid> solution = Solver.solve(puzzle, Heuristic.fewestCandidates(), trace);
+        assertEquals(Solver.solve(puzzle), solution);
+        assertEquals(0, trace.getDropped());
+        assertEquals(puzzle, trace.getPuzzle());
+
+        List<SolveTrace.Step> steps = trace.steps();
+        assertEquals(trace.getRecorded(), steps.size());
+        long guesses = steps.stream().filter(step -> step.getKind() == SolveTrace.Kind.GUESS)
+                .count();
+        long backtracks = steps.stream()
+                .filter(step -> step.getKind() == SolveTrace.Kind.BACKTRACK).count();
+        assertTrue(backtracks > 0);
+        assertEquals(guesses - backtracks, steps.get(steps.size() - 1).getDepth());
+
+        assertEquals(solution.get().toString(), trace.gridAfter(steps.size()).toString());
+        for (int i = 0; i <= steps.size(); i += 97) {
+            AnnotatedGrid grid = trace.gridAfter(i);
+            for (Cell cell : puzzle.nonEmptyCells()) {
+                assertEquals(puzzle.digitAt(cell), grid.digitAt(cell));
+            }
+            if (i > 0 && steps.get(i - 1).getKind() != SolveTrace.Kind.BACKTRACK) {
+                SolveTrace.Step step = steps.get(i - 1);
+                if (step.getKind() == SolveTrace.Kind.RULE_OUT) {
+                    assertTrue(!grid.candidates(step.getCell()).contains(step.getDigit()));
+                } else {
+                    assertEquals(Optional.of(step.getDigit()), grid.digitAt(step.getCell()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void keepsLatestSteps() throws GridParserException {
+        SolveTrace trace = new SolveTrace(100);
+        assertEquals(128, trace.getCapacity());
+        Solver.solve(Grid.fromString(HARD), Heuristic.fewestCandidates(), trace);
+        assertTrue(trace.getDropped() > 0);
+        assertEquals(trace.getRecorded() - trace.getDropped(), trace.steps().size());
+        assertThrows(IllegalStateException.class, () -> trace.gridAfter(0));
+
+        // A solve replaces the steps of the previous one
+        Grid solution = Solver.solve(new Grid(), Heuristic.fewestCandidates(), trace).get();
+        assertEquals(0, trace.getDropped());
+        assertTrue(trace.getRecorded() >= 81);
+        assertEquals(new Grid(), trace.getPuzzle());
+        assertEquals(solution.toString(), trace.gridAfter((int) trace.getRecorded()).toString());
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> trace.gridAfter((int) trace.getRecorded() + 1));
+    }
+
+}
@@ -1,5 +1,6 @@
 package sudoku;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -23,7 +24,7 @@ public class TestsWithAllPuzzles {
     @Getter
     private List<Grid> grids = null;
 
-    private static List<Grid> readGridsFromInput() throws IOException {
+    static List<Grid> readGridsFromInput() throws IOException {
         List<Grid> grids = new ArrayList<>();
         try (BufferedReader input = new BufferedReader(new FileReader("src/main/resources/puzzles"))) {
             for (Optional<Grid> optGrid = App.readGrid(input); optGrid
@@ -56,4 +57,15 @@ public class TestsWithAllPuzzles {
     public void canSolve(Grid grid) {
         assertTrue(Solver.solve(grid).isPresent());
     }
+
+    @ParameterizedTest
+    @MethodSource("getGrids")
+    public void canSolveWithEveryHeuristic(Grid grid) {
+        for (Heuristic heuristic : HeuristicTest.heuristics()) {
+            Statistics statistics = new Statistics();
+            Optional<Grid> solved = Solver.solve(grid, heuristic, statistics);
+            assertTrue(solved.isPresent() && solved.get().isSolutionOf(grid), heuristic.getName());
+            assertEquals(heuristic.getName(), statistics.getHeuristic());
+        }
+    }
 }
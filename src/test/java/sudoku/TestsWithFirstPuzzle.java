@@ -74,4 +74,51 @@ public class TestsWithFirstPuzzle {
         assertTrue(solved.get().isSolved());
     }
 
+    @Test
+    public void verifySolution() throws GridParserException {
+        String solution = Solver.solve(grid).get().toString();
+        assertTrue(Grid.fromString(solution).isSolutionOf(grid));
+        assertFalse(grid.isSolutionOf(grid));
+
+        String swapped = solution.charAt(1) + "" + solution.charAt(0) + solution.substring(2);
+        assertFalse(Grid.fromString(swapped).isSolved());
+
+        // Relabeling digits preserves solvedness, but not agreement with the clues
+        String relabeled = solution.replace('1', 'x').replace('2', '1').replace('x', '2');
+        assertTrue(Grid.fromString(relabeled).isSolved());
+        assertFalse(Grid.fromString(relabeled).isSolutionOf(grid));
+    }
+
+    @Test
+    public void pencilMarksRoundTrip() throws GridParserException {
+        String marks = annotatedGrid.toPencilMarks();
+        assertEquals(81 + 3 * 81, marks.length());
+        assertEquals(grid.toString(), marks.substring(0, 81));
+        assertEquals(annotatedGrid, AnnotatedGrid.fromPencilMarks(marks));
+
+        // Marks that leave every digit as a candidate are pruned by the clues
+        StringBuilder loose = new StringBuilder(grid.toString());
+        for (Cell cell : GridElements.cells()) {
+            loose.append(grid.digitAt(cell).isPresent() ? "000" : "777");
+        }
+        assertEquals(annotatedGrid, AnnotatedGrid.fromPencilMarks(loose));
+    }
+
+    @Test
+    public void pencilMarksKeepEliminations() throws GridParserException {
+        Grid solution = Solver.solve(grid).get();
+        Cell cell = annotatedGrid.emptyCells().iterator().next();
+        Digit digit = solution.digitAt(cell).get();
+        assertEquals(Optional.of(solution), Solver.solveAnnotated(annotatedGrid,
+                Heuristic.fewestCandidates()));
+
+        annotatedGrid.ruleOut(digit, cell);
+        AnnotatedGrid fromMarks = AnnotatedGrid.fromPencilMarks(annotatedGrid.toPencilMarks());
+        assertFalse(fromMarks.candidates(cell).contains(digit));
+        // The puzzle has a single solution, which the elimination rules out
+        assertEquals(Optional.empty(),
+                Solver.solveAnnotated(fromMarks, Heuristic.fewestCandidates()));
+        assertEquals(annotatedGrid, fromMarks);
+    }
+
 }
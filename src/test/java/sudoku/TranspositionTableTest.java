@@ -0,0 +1,99 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import sudoku.exceptions.GridParserException;
+
+public class TranspositionTableTest {
+
+    // The first Project Euler puzzle without the clues in its first two rows and a half
+    private static final String SPARSE = "000000000000000000001806400008102900700000008"
+            + "006708200002609500800203009005010300";
+
+    @Test
+    public void countsAgreeWithEnumeration() throws GridParserException {
+        Grid grid = Grid.fromString(SPARSE);
+        long expected = Solver.solutions(grid).count();
+        assertEquals(2788, expected);
+
+        Statistics withoutTable = new Statistics();
+        assertEquals(expected, Solver.countSolutions(grid, Long.MAX_VALUE, null, withoutTable));
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        Statistics withTable = new Statistics();
+        assertEquals(expected, Solver.countSolutions(grid, Long.MAX_VALUE, table, withTable));
+        assertTrue(table.getHits() > 0);
+        assertTrue(withTable.getNodes() < withoutTable.getNodes());
+        assertEquals(table.getMisses(), table.getStores());
+    }
+
+    @Test
+    public void enumerationSkipsDeadBranchPoints() throws GridParserException {
+        Grid grid = Grid.fromString(SPARSE);
+        Statistics withoutTable = new Statistics();
+        long expected = StreamSupport.stream(new SolutionSpliterator(
+                AnnotatedGrid.fromOrdinaryGrid(grid), Heuristic.fewestCandidates(), withoutTable),
+                false).count();
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        Statistics withTable = new Statistics();
+        Set<Grid> solutions = StreamSupport.stream(new SolutionSpliterator(
+                AnnotatedGrid.fromOrdinaryGrid(grid), Heuristic.fewestCandidates(), withTable,
+                null, table), false).collect(Collectors.toSet());
+        assertEquals(expected, solutions.size());
+        assertTrue(solutions.stream().allMatch(solution -> solution.isSolutionOf(grid)));
+        assertTrue(table.getHits() > 0);
+        assertTrue(withTable.getNodes() < withoutTable.getNodes());
+        // Counts of zero recorded by an enumeration are used by counts, and the other way round
+        assertEquals(expected, Solver.countSolutions(grid, Long.MAX_VALUE, table));
+        assertEquals(expected, Solver.solutions(grid, Heuristic.fewestCandidates(), table)
+                .parallel().count());
+    }
+
+    @Test
+    public void tableIsSharedByCounts() throws GridParserException {
+        Grid grid = Grid.fromString(SPARSE);
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        long count = Solver.countSolutions(grid, Long.MAX_VALUE, table);
+        Statistics statistics = new Statistics();
+        assertEquals(count, Solver.countSolutions(grid, Long.MAX_VALUE, table, statistics));
+        assertEquals(1, statistics.getNodes());
+    }
+
+    @Test
+    public void smallTableReplacesEntries() throws GridParserException {
+        Grid grid = Grid.fromString(SPARSE);
+        TranspositionTable table = new TranspositionTable(2);
+        assertEquals(2, table.getCapacity());
+        assertEquals(2788, Solver.countSolutions(grid, Long.MAX_VALUE, table));
+        assertTrue(table.getReplacements() > 0);
+        assertEquals(1 << 10, new TranspositionTable(1000).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(1));
+    }
+
+    @Test
+    public void countsStopAtTheLimit() throws GridParserException {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        assertEquals(1000, Solver.countSolutions(new Grid(), 1000, table));
+        assertEquals(1000, Solver.countSolutions(Grid.fromString(SPARSE), 1000, table));
+        assertEquals(2788, Solver.countSolutions(Grid.fromString(SPARSE), 3000, table));
+        assertThrows(IllegalArgumentException.class,
+                () -> Solver.countSolutions(new Grid(), 0));
+    }
+
+    @Test
+    public void countHardPuzzles() throws IOException {
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        for (Grid grid : PerformanceRegressionTest.readCorpus("hardest")) {
+            assertEquals(1, Solver.countSolutions(grid, Long.MAX_VALUE, table));
+        }
+        for (Grid grid : PerformanceRegressionTest.readCorpus("unsolvable")) {
+            assertEquals(0, Solver.countSolutions(grid, Long.MAX_VALUE, table));
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import sudoku.GridElements.Cell;
+import sudoku.exceptions.GridParserException;
+
+public class UnitsTest {
+
+    private static final String PUZZLE = "003020600900305001001806400008102900700000008"
+            + "006708200002609500800203009005010300";
+
+    // The boxes, except that the first two trade the cells (0, 2) and (1, 3)
+    private static final String REGIONS = "aabbbbccc" + "aaaabbccc" + "aaabbbccc"
+            + "dddeeefff" + "dddeeefff" + "dddeeefff"
+            + "ggghhhiii" + "ggghhhiii" + "ggghhhiii";
+
+    @Test
+    public void standardUnitsAgreeWithSolver() throws GridParserException {
+        Grid grid = Grid.fromString(PUZZLE);
+        Units units = Units.standard();
+        assertEquals(27, units.size());
+        Optional<Grid> solution = Solver.solve(grid, units);
+        assertTrue(solution.isPresent());
+        assertEquals(Solver.solve(grid), solution);
+        assertTrue(units.isSolved(solution.get()));
+        assertFalse(units.isSolved(grid));
+    }
+
+    @Test
+    public void solvesVariants() {
+        Units[] variants = {Units.standard().withDiagonals(), Units.standard().withWindows()};
+        for (Units units : variants) {
+            Optional<Grid> solution = Solver.solve(new Grid(), units);
+            assertTrue(solution.isPresent());
+            assertTrue(units.isSolved(solution.get()));
+            assertTrue(solution.get().isSolved());
+        }
+    }
+
+    @Test
+    public void solvesJigsawSudoku() throws GridParserException {
+        // A solution whose cells (0, 2) and (1, 3) hold the same digit also solves the jigsaw
+        Grid grid = new Grid();
+        grid.setDigit(Cell.of(0, 2), Digit.ONE);
+        grid.setDigit(Cell.of(1, 3), Digit.ONE);
+        String solved = Solver.solve(grid).get().toString();
+        Grid puzzle = Grid.fromString(new String(new char[36]).replace('\0', '0')
+                + solved.substring(36));
+        Units units = Units.jigsaw(REGIONS);
+        Optional<Grid> solution = Solver.solve(puzzle, units);
+        assertTrue(solution.isPresent());
+        assertTrue(units.isSolved(solution.get()));
+    }
+
+    @Test
+    public void rejectsCluesThatBreakExtraUnits() {
+        Grid grid = new Grid();
+        grid.setDigit(Cell.of(0, 0), Digit.ONE);
+        grid.setDigit(Cell.of(8, 8), Digit.ONE);
+        assertTrue(Solver.solve(grid).isPresent());
+        assertFalse(Solver.solve(grid, Units.standard().withDiagonals()).isPresent());
+    }
+
+    @Test
+    public void solvesKillerSudoku() throws GridParserException {
+        Grid solution = Solver.solve(Grid.fromString(PUZZLE)).get();
+        Units units = Units.standard();
+        for (int row = 0; row < 9; row++) {
+            for (int column = 0; column < 8; column += 2) {
+                units = withCage(units, solution, Cell.of(row, column), Cell.of(row, column + 1));
+            }
+        }
+        for (int row = 0; row < 9; row += 3) {
+            units = withCage(units, solution, Cell.of(row, 8), Cell.of(row + 1, 8),
+                    Cell.of(row + 2, 8));
+        }
+        assertEquals(27 + 36 + 3, units.size());
+        Optional<Grid> killerSolution = Solver.solve(new Grid(), units);
+        assertTrue(killerSolution.isPresent());
+        assertTrue(units.isSolved(killerSolution.get()));
+
+        // Only 1 and 2 add up to 3
+        Units cage = Units.standard().withCage(3, Cell.of(0, 0), Cell.of(0, 1));
+        Grid grid = Solver.solve(new Grid(), cage).get();
+        assertEquals(3, grid.digitAt(Cell.of(0, 0)).get().toInt()
+                + grid.digitAt(Cell.of(0, 1)).get().toInt());
+        grid = new Grid();
+        grid.setDigit(Cell.of(0, 0), Digit.THREE);
+        assertFalse(Solver.solve(grid, cage).isPresent());
+    }
+
+    private static Units withCage(Units units, Grid solution, Cell... cells) {
+        int sum = 0;
+        for (Cell cell : cells) {
+            sum += solution.digitAt(cell).get().toInt();
+        }
+        return units.withCage(sum, cells);
+    }
+
+    @Test
+    public void rejectsBadUnits() {
+        assertThrows(IllegalArgumentException.class, () -> Units.jigsaw("abc"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Units.jigsaw("b" + REGIONS.substring(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> Units.standard().withCage(2, Cell.of(0, 0), Cell.of(0, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> Units.standard().withCage(3, Cell.of(0, 0), Cell.of(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> Units.standard().withCage(5));
+    }
+
+}
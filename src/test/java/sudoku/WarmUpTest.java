@@ -0,0 +1,31 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class WarmUpTest {
+
+    @Test
+    public void runsAtMostTheGivenRounds() {
+        WarmUp.Report report = WarmUp.warmUp(3);
+        assertEquals(3, report.getRounds());
+        // Stabilization is judged over more rounds than that
+        assertFalse(report.isStabilized());
+        for (double throughput : report.getThroughputs()) {
+            assertTrue(throughput > 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> WarmUp.warmUp(0));
+    }
+
+    @Test
+    public void runsAtLeastOneRound() {
+        WarmUp.Report report = WarmUp.warmUp(Duration.ZERO);
+        assertEquals(1, report.getRounds());
+        assertTrue(report.toString().startsWith("Not stabilized after 1 rounds"));
+    }
+
+}